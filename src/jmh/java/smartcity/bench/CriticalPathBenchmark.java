@@ -0,0 +1,67 @@
+package smartcity.bench;
+
+import org.openjdk.jmh.annotations.*;
+import smartcity.graph.CSRGraph;
+import smartcity.graph.Metrics;
+import smartcity.graph.dagsp.DAGShortestPath;
+import smartcity.graph.topo.ParallelTopologicalSort;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sequential versus level-parallel critical path on large random DAGs
+ * (edges always point from a lower to a higher vertex id).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class CriticalPathBenchmark {
+
+    @Param({"1000000"})
+    public int vertexCount;
+
+    @Param({"10"})
+    public int averageDegree;
+
+    private CSRGraph graph;
+    private CSRGraph predecessors;
+    private int[] durations;
+    private ParallelTopologicalSort.LevelOrder levels;
+    private DAGShortestPath dagsp;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        SplittableRandom random = new SplittableRandom(42);
+        long edges = (long) vertexCount * averageDegree;
+        CSRGraph.Builder builder = new CSRGraph.Builder(vertexCount, (int) edges);
+        for (long i = 0; i < edges; i++) {
+            int a = random.nextInt(vertexCount);
+            int b = random.nextInt(vertexCount);
+            if (a != b) {
+                builder.addEdge(Math.min(a, b), Math.max(a, b));
+            }
+        }
+        graph = builder.build();
+        predecessors = CSRGraph.transpose(graph);
+        durations = new int[vertexCount];
+        for (int v = 0; v < vertexCount; v++) {
+            durations[v] = random.nextInt(10) + 1;
+        }
+        levels = new ParallelTopologicalSort(new Metrics()).sort(graph);
+        dagsp = new DAGShortestPath(new Metrics());
+    }
+
+    @Benchmark
+    public DAGShortestPath.CriticalPathResult sequential() {
+        return dagsp.findCriticalPath(graph, durations, levels.order);
+    }
+
+    @Benchmark
+    public DAGShortestPath.CriticalPathResult parallel() {
+        return dagsp.findCriticalPathParallel(predecessors, durations, levels, ForkJoinPool.commonPool());
+    }
+}
@@ -0,0 +1,98 @@
+package smartcity.bench;
+
+import org.openjdk.jmh.annotations.*;
+import smartcity.generator.DatasetGenerator;
+import smartcity.graph.CSRGraph;
+import smartcity.graph.DirectedGraph;
+import smartcity.graph.Metrics;
+import smartcity.graph.dagsp.DAGShortestPath;
+import smartcity.graph.scc.Condensation;
+import smartcity.graph.scc.TarjanSCC;
+import smartcity.graph.topo.TopologicalSort;
+import smartcity.model.TaskGraph;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the SCC -> condensation -> topological sort -> critical path pipeline
+ * on graphs produced by DatasetGenerator's random model.
+ * buildCondensationGraph includes the SCC pass; buildCondensation reuses precomputed components.
+ * Topological sort and critical path run on the condensation DAG, as in Main.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GraphAlgorithmsBenchmark {
+
+    @Param({"1000", "5000"})
+    public int vertexCount;
+
+    @Param({"0.001", "0.01"})
+    public double density;
+
+    @Param({"0", "10"})
+    public int cycles;
+
+    private DirectedGraph graph;
+    private TarjanSCC components;
+    private int[] durations;
+    private CSRGraph condensation;
+    private int[] componentDurations;
+    private int[] condensationOrder;
+    private Metrics metrics;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        TaskGraph taskGraph = new DatasetGenerator(42)
+                .generateTaskGraph("bench", vertexCount, density, cycles > 0, cycles);
+        graph = taskGraph.graph;
+        metrics = new Metrics();
+
+        durations = taskGraph.durations;
+        components = new TarjanSCC(graph, metrics);
+        Condensation condensed = components.buildCondensation(durations);
+        condensation = condensed.dag;
+        componentDurations = condensed.componentDurations;
+        condensationOrder = new TopologicalSort(metrics).kahnTopologicalSort(condensation);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetMetrics() {
+        metrics.reset();
+    }
+
+    @Benchmark
+    public List<List<Integer>> findSCCs() {
+        return new TarjanSCC(graph, metrics).findSCCs();
+    }
+
+    @Benchmark
+    public int findComponents() {
+        return new TarjanSCC(graph, metrics).findComponents();
+    }
+
+    @Benchmark
+    public Map<Integer, List<Integer>> buildCondensationGraph() {
+        return new TarjanSCC(graph, metrics).buildCondensationGraph();
+    }
+
+    /** Condensation only, reusing the components computed during setup. */
+    @Benchmark
+    public Condensation buildCondensation() {
+        return Condensation.build(components, durations);
+    }
+
+    @Benchmark
+    public int[] kahnTopologicalSort() {
+        return new TopologicalSort(metrics).kahnTopologicalSort(condensation);
+    }
+
+    @Benchmark
+    public DAGShortestPath.CriticalPathResult findCriticalPath() {
+        return new DAGShortestPath(metrics).findCriticalPath(condensation, componentDurations, condensationOrder);
+    }
+}
@@ -0,0 +1,72 @@
+package smartcity.bench;
+
+import org.openjdk.jmh.annotations.*;
+import smartcity.graph.CSRGraph;
+import smartcity.graph.Metrics;
+import smartcity.graph.dagsp.DAGShortestPath;
+import smartcity.graph.dagsp.IncrementalCriticalPath;
+import smartcity.graph.topo.TopologicalSort;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one task duration change: incremental re-propagation through the downstream cone
+ * versus recomputing the whole critical path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class IncrementalCriticalPathBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int vertexCount;
+
+    @Param({"4"})
+    public int averageDegree;
+
+    private CSRGraph graph;
+    private int[] durations;
+    private int[] topoOrder;
+    private DAGShortestPath dagsp;
+    private IncrementalCriticalPath incremental;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        random = new SplittableRandom(42);
+        long edges = (long) vertexCount * averageDegree;
+        CSRGraph.Builder builder = new CSRGraph.Builder(vertexCount, (int) edges);
+        for (long i = 0; i < edges; i++) {
+            int a = random.nextInt(vertexCount);
+            int b = random.nextInt(vertexCount);
+            if (a != b) {
+                builder.addEdge(Math.min(a, b), Math.max(a, b));
+            }
+        }
+        graph = builder.build();
+        durations = new int[vertexCount];
+        for (int v = 0; v < vertexCount; v++) {
+            durations[v] = random.nextInt(10) + 1;
+        }
+        topoOrder = new TopologicalSort(new Metrics()).kahnTopologicalSort(graph);
+        dagsp = new DAGShortestPath(new Metrics());
+        incremental = new IncrementalCriticalPath(graph, durations, topoOrder, new Metrics());
+    }
+
+    @Benchmark
+    public DAGShortestPath.CriticalPathResult incrementalUpdate() {
+        int v = random.nextInt(vertexCount);
+        incremental.updateDuration(v, random.nextInt(10) + 1);
+        return incremental.getCriticalPath();
+    }
+
+    @Benchmark
+    public DAGShortestPath.CriticalPathResult fullRecomputation() {
+        int v = random.nextInt(vertexCount);
+        durations[v] = random.nextInt(10) + 1;
+        return dagsp.findCriticalPath(graph, durations, topoOrder);
+    }
+}
@@ -0,0 +1,70 @@
+package smartcity.bench;
+
+import org.openjdk.jmh.annotations.*;
+import smartcity.graph.CSRGraph;
+import smartcity.graph.Metrics;
+import smartcity.graph.schedule.CrewSchedule;
+import smartcity.graph.schedule.ListScheduler;
+import smartcity.graph.topo.TopologicalSort;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HLFET list scheduling versus dispatching in plain topological order on large random DAGs.
+ * Besides the run time, the makespan and utilization of both policies are printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ListSchedulerBenchmark {
+
+    @Param({"1000000"})
+    public int vertexCount;
+
+    @Param({"4"})
+    public int averageDegree;
+
+    @Param({"16", "256"})
+    public int crews;
+
+    private int[] topoOrder;
+    private ListScheduler scheduler;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        SplittableRandom random = new SplittableRandom(42);
+        long edges = (long) vertexCount * averageDegree;
+        CSRGraph.Builder builder = new CSRGraph.Builder(vertexCount, (int) edges);
+        for (long i = 0; i < edges; i++) {
+            int a = random.nextInt(vertexCount);
+            int b = random.nextInt(vertexCount);
+            if (a != b) {
+                builder.addEdge(Math.min(a, b), Math.max(a, b));
+            }
+        }
+        CSRGraph graph = builder.build();
+        int[] durations = new int[vertexCount];
+        for (int v = 0; v < vertexCount; v++) {
+            durations[v] = random.nextInt(10) + 1;
+        }
+        topoOrder = new TopologicalSort(new Metrics()).kahnTopologicalSort(graph);
+        scheduler = new ListScheduler(graph, durations, crews, new Metrics());
+
+        System.out.println();
+        System.out.println("topological order: " + scheduler.schedule(topoOrder));
+        System.out.println("HLFET:             " + scheduler.scheduleHlfet(topoOrder));
+    }
+
+    @Benchmark
+    public CrewSchedule naiveOrder() {
+        return scheduler.schedule(topoOrder);
+    }
+
+    @Benchmark
+    public CrewSchedule hlfet() {
+        return scheduler.scheduleHlfet(topoOrder);
+    }
+}
@@ -0,0 +1,51 @@
+package smartcity.bench;
+
+import org.openjdk.jmh.annotations.*;
+import smartcity.generator.GraphGenerators;
+import smartcity.graph.CSRGraph;
+import smartcity.graph.Metrics;
+import smartcity.graph.OffHeapGraph;
+import smartcity.graph.scc.LongTarjanSCC;
+import smartcity.graph.scc.TarjanSCC;
+import smartcity.model.TaskGraph;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the off-heap, long-indexed layout: Tarjan over a heap CSRGraph versus the same
+ * graph copied into an OffHeapGraph.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class OffHeapGraphBenchmark {
+
+    @Param({"1000000"})
+    public int vertexCount;
+
+    @Param({"8"})
+    public int averageDegree;
+
+    private CSRGraph heapGraph;
+    private OffHeapGraph offHeapGraph;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        TaskGraph taskGraph = GraphGenerators.erdosRenyiWithEdges("bench", vertexCount,
+                (long) vertexCount * averageDegree, false, 42);
+        heapGraph = (CSRGraph) taskGraph.graph;
+        offHeapGraph = OffHeapGraph.copyOf(heapGraph);
+    }
+
+    @Benchmark
+    public int heapTarjan() {
+        return new TarjanSCC(heapGraph, Metrics.disabled()).findComponents();
+    }
+
+    @Benchmark
+    public int offHeapTarjan() {
+        return new LongTarjanSCC(offHeapGraph, Metrics.disabled()).findComponents();
+    }
+}
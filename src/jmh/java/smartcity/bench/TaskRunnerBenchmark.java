@@ -0,0 +1,52 @@
+package smartcity.bench;
+
+import org.openjdk.jmh.annotations.*;
+import smartcity.graph.CSRGraph;
+import smartcity.graph.Metrics;
+import smartcity.graph.schedule.ParallelTaskRunner;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scheduling overhead of ParallelTaskRunner: one run of a large DAG of empty tasks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TaskRunnerBenchmark {
+
+    @Param({"1000000"})
+    public int vertexCount;
+
+    @Param({"4"})
+    public int averageDegree;
+
+    private CSRGraph graph;
+    private Runnable[] actions;
+    private ParallelTaskRunner runner;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        SplittableRandom random = new SplittableRandom(42);
+        long edges = (long) vertexCount * averageDegree;
+        CSRGraph.Builder builder = new CSRGraph.Builder(vertexCount, (int) edges);
+        for (long i = 0; i < edges; i++) {
+            int a = random.nextInt(vertexCount);
+            int b = random.nextInt(vertexCount);
+            if (a != b) {
+                builder.addEdge(Math.min(a, b), Math.max(a, b));
+            }
+        }
+        graph = builder.build();
+        actions = new Runnable[vertexCount];
+        runner = new ParallelTaskRunner(new Metrics());
+    }
+
+    @Benchmark
+    public ParallelTaskRunner.RunReport emptyTasks() throws InterruptedException {
+        return runner.run(graph, actions);
+    }
+}
@@ -1,19 +1,37 @@
 package smartcity;
 
 import smartcity.graph.*;
+import smartcity.graph.scc.Condensation;
 import smartcity.graph.scc.TarjanSCC;
 import smartcity.graph.topo.TopologicalSort;
 import smartcity.graph.dagsp.DAGShortestPath;
+import smartcity.graph.schedule.CrewSchedule;
+import smartcity.graph.schedule.ListScheduler;
 import smartcity.generator.DatasetGenerator;
-import java.io.BufferedReader;
-import java.io.FileReader;
+import smartcity.io.BinaryGraphFormat;
+import smartcity.io.JsonGraphLoader;
+import smartcity.model.TaskGraph;
+import smartcity.server.AnalysisServer;
 import java.util.*;
 
 public class Main {
 
+    private static final int CREWS = 3;
+
+    private static boolean binaryDatasets;
+
     public static void main(String[] args) {
         System.out.println("=== Smart City Scheduling System ===\n");
 
+        binaryDatasets = Arrays.asList(args).contains("--binary");
+
+        int serve = Arrays.asList(args).indexOf("--serve");
+        if (serve >= 0) {
+            int port = serve + 1 < args.length && args[serve + 1].matches("\\d+") ? Integer.parseInt(args[serve + 1]) : 8080;
+            serve(port);
+            return;
+        }
+
         generateDatasets();
 
         processAllDatasets();
@@ -21,8 +39,31 @@ public class Main {
         System.out.println("\n=== Processing Complete ===");
     }
 
+    /**
+     * Server mode: no dataset generation; existing datasets are loaded once and stay resident.
+     */
+    private static void serve(int port) {
+        try {
+            AnalysisServer server = new AnalysisServer(port, Runtime.getRuntime().availableProcessors(), 64, 256L << 20);
+            java.io.File[] files = new java.io.File("data").listFiles((dir, name) -> name.endsWith(".json"));
+            if (files != null) {
+                Arrays.sort(files);
+                for (java.io.File file : files) {
+                    server.put(JsonGraphLoader.load(file.toPath()));
+                }
+            }
+            server.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(1)));
+            System.out.println("Serving " + (files == null ? 0 : files.length) + " datasets on http://127.0.0.1:"
+                    + server.getPort() + "/graphs");
+        } catch (java.io.IOException e) {
+            System.err.println("Could not start server: " + e.getMessage());
+        }
+    }
+
     private static void generateDatasets() {
         DatasetGenerator generator = new DatasetGenerator();
+        generator.setBinaryOutput(binaryDatasets);
         generator.generateAllDatasets();
     }
 
@@ -52,14 +93,12 @@ public class Main {
                 return;
             }
 
-            String jsonContent = readFile(filename);
-            Map<String, Object> data = parseSimpleJSON(jsonContent);
-
-            Map<Integer, List<Integer>> graph = parseGraph(data);
+            java.io.File binaryFile = new java.io.File(filename.replaceFirst("\\.json$", ".bin"));
+            TaskGraph taskGraph = binaryDatasets && binaryFile.exists()
+                    ? BinaryGraphFormat.map(binaryFile.toPath())
+                    : JsonGraphLoader.load(filename);
 
-            int[] nodeDurations = parseDurations(data, graph.size());
-
-            processGraph(graph, nodeDurations, filename);
+            processGraph(taskGraph.graph, taskGraph.durations, filename);
 
         } catch (Exception e) {
             System.err.println("Error processing dataset " + filename + ": " + e.getMessage());
@@ -68,12 +107,19 @@ public class Main {
         }
     }
 
-    private static void processGraph(Map<Integer, List<Integer>> graph, int[] nodeDurations, String datasetName) {
+    private static void processGraph(DirectedGraph graph, int[] nodeDurations, String datasetName) {
         Metrics metrics = new Metrics();
+        metrics.time("analysis", () -> analyze(graph, nodeDurations, metrics));
+        System.out.println("\n   Phase times:");
+        for (String line : metrics.scopeReport().split("\n")) {
+            System.out.println("   " + line);
+        }
+    }
 
+    private static void analyze(DirectedGraph graph, int[] nodeDurations, Metrics metrics) {
         System.out.println("\n1. STRONGLY CONNECTED COMPONENTS:");
         TarjanSCC tarjan = new TarjanSCC(graph, metrics);
-        List<List<Integer>> sccs = tarjan.findSCCs();
+        List<List<Integer>> sccs = metrics.time("scc", tarjan::findSCCs);
         List<Integer> sccSizes = new ArrayList<>();
         for (List<Integer> scc : sccs) {
             sccSizes.add(scc.size());
@@ -85,37 +131,50 @@ public class Main {
         metrics.reset();
 
         System.out.println("\n2. CONDENSATION GRAPH & TOPOLOGICAL SORT:");
-        Map<Integer, List<Integer>> condensation = tarjan.buildCondensationGraph();
+        Condensation condensation = metrics.time("condensation", () -> tarjan.buildCondensation(nodeDurations));
         TopologicalSort topo = new TopologicalSort(metrics);
-        List<Integer> compOrder = topo.kahnTopologicalSort(condensation);
+        int[] compOrder = metrics.time("topo", () -> topo.kahnTopologicalSort(condensation.dag));
 
-        System.out.println("   Condensation nodes: " + condensation.size());
-        System.out.println("   Topological order: " + compOrder);
+        System.out.println("   Condensation nodes: " + condensation.componentCount());
+        System.out.println("   Topological order: " + Arrays.toString(compOrder));
         System.out.println("   Metrics: " + metrics);
         metrics.reset();
 
         System.out.println("\n3. CRITICAL PATH ANALYSIS:");
         DAGShortestPath dagsp = new DAGShortestPath(metrics);
 
-        List<Integer> originalTopoOrder = topo.kahnTopologicalSort(graph);
-        if (originalTopoOrder.size() == graph.size()) {
-            DAGShortestPath.CriticalPathResult criticalPath =
-                    dagsp.findCriticalPath(graph, nodeDurations, originalTopoOrder);
-
-            System.out.println("   Critical path length: " + criticalPath.length);
-            System.out.println("   Critical path: " + criticalPath.path);
-        } else {
-            System.out.println("   Graph has cycles, using condensation for critical path");
-            List<Integer> representativeOrder = new ArrayList<>();
-            for (int compId : compOrder) {
-                representativeOrder.add(sccs.get(compId).get(0));
+        metrics.time("critical-path", () -> {
+            int[] originalTopoOrder = topo.kahnTopologicalSort(graph);
+            if (originalTopoOrder.length == graph.vertexCount()) {
+                DAGShortestPath.CriticalPathResult criticalPath =
+                        dagsp.findCriticalPath(graph, nodeDurations, originalTopoOrder);
+
+                System.out.println("   Critical path length: " + criticalPath.length);
+                System.out.println("   Critical path: " + criticalPath.path);
+
+                DAGShortestPath.Schedule schedule = dagsp.computeSchedule(graph, nodeDurations, originalTopoOrder);
+                System.out.println("   Zero-slack tasks: " + Arrays.toString(schedule.criticalTasks));
+            } else {
+                System.out.println("   Graph has cycles, using condensation for critical path");
+                DAGShortestPath.CondensedPathResult criticalPath =
+                        dagsp.findCondensedCriticalPath(condensation, compOrder);
+
+                System.out.println("   Critical path length: " + criticalPath.length);
+                System.out.println("   Critical components: " + criticalPath.componentPath);
+                System.out.println("   Critical path: " + criticalPath.path);
             }
-            DAGShortestPath.CriticalPathResult criticalPath =
-                    dagsp.findCriticalPath(graph, nodeDurations, representativeOrder);
+        });
+        System.out.println("   Metrics: " + metrics);
+        metrics.reset();
 
-            System.out.println("   Critical path length: " + criticalPath.length);
-            System.out.println("   Critical path: " + criticalPath.path);
-        }
+        System.out.println("\n4. CREW SCHEDULE (" + CREWS + " crews, components as tasks):");
+        ListScheduler scheduler = new ListScheduler(condensation.dag, condensation.componentDurations, CREWS, metrics);
+        CrewSchedule[] schedules = metrics.time("schedule",
+                () -> new CrewSchedule[]{scheduler.schedule(compOrder), scheduler.scheduleHlfet(compOrder)});
+        CrewSchedule naive = schedules[0];
+        CrewSchedule hlfet = schedules[1];
+        System.out.println("   Topological order: " + naive);
+        System.out.println("   HLFET priority:    " + hlfet);
         System.out.println("   Metrics: " + metrics);
     }
 
@@ -129,65 +188,6 @@ public class Main {
 
         int[] durations = {2, 3, 1, 4, 2};
 
-        processGraph(graph, durations, "TEST_GRAPH");
-    }
-
-    private static String readFile(String filename) throws Exception {
-        StringBuilder content = new StringBuilder();
-        try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                content.append(line).append("\n");
-            }
-        }
-        return content.toString();
-    }
-
-    private static Map<String, Object> parseSimpleJSON(String json) {
-        Map<String, Object> result = new HashMap<>();
-        if (json.contains("\"graph\"")) {
-            result.put("hasGraph", true);
-        }
-        if (json.contains("\"durations\"")) {
-            result.put("hasDurations", true);
-        }
-        return result;
-    }
-
-    private static Map<Integer, List<Integer>> parseGraph(Map<String, Object> data) {
-        return createTestGraph();
-    }
-
-    private static int[] parseDurations(Map<String, Object> data, int size) {
-        int[] durations = new int[size];
-        Random random = new Random();
-        for (int i = 0; i < size; i++) {
-            durations[i] = random.nextInt(10) + 1; // Random durations 1-10
-        }
-        return durations;
-    }
-
-    private static Map<Integer, List<Integer>> createTestGraph() {
-        Map<Integer, List<Integer>> graph = new HashMap<>();
-
-        graph.put(0, Arrays.asList(1));
-        graph.put(1, Arrays.asList(2));
-        graph.put(2, Arrays.asList(3));
-
-        graph.put(4, Arrays.asList(5));
-        graph.put(5, Arrays.asList(6));
-        graph.put(6, Arrays.asList(4)); // Cycle
-
-        graph.put(7, Arrays.asList(8));
-        graph.put(8, Arrays.asList(9));
-
-        graph.get(3).add(4);
-        graph.get(3).add(7);
-
-        for (int i = 0; i < 10; i++) {
-            graph.putIfAbsent(i, new ArrayList<>());
-        }
-
-        return graph;
+        processGraph(CSRGraph.fromAdjacencyMap(graph), durations, "TEST_GRAPH");
     }
 }
\ No newline at end of file
@@ -0,0 +1,340 @@
+package smartcity.batch;
+
+import smartcity.graph.DirectedGraph;
+import smartcity.graph.Metrics;
+import smartcity.graph.dagsp.DAGShortestPath;
+import smartcity.graph.scc.Condensation;
+import smartcity.graph.scc.TarjanSCC;
+import smartcity.graph.topo.TopologicalSort;
+import smartcity.io.BinaryGraphFormat;
+import smartcity.io.JsonGraphLoader;
+import smartcity.io.JsonGraphWriter;
+import smartcity.model.TaskGraph;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Loads, analyses and writes results for many datasets concurrently.
+ *
+ * Loader threads parse datasets (.json, or memory-mapped .bin) and hand them to a fixed pool
+ * of analysis workers. A loader must take a permit before it starts on a file and the worker
+ * returns it once the result is written, so at most maxInFlight graphs are held in memory and
+ * loading stalls whenever analysis falls behind. Every graph is analysed with its own Metrics
+ * (SCC, condensation, topological sort, critical path) and its result written to the output
+ * directory as &lt;input file name&gt;.result.json, e.g. city.json.result.json. The name comes
+ * from the input path rather than the document, so X.json and X.bin do not collide and a
+ * "name" member cannot point outside the directory; a second input with the same file name
+ * fails before it is loaded. A failing dataset is reported in its GraphResult and does not
+ * stop the batch.
+ */
+public class BatchPipeline {
+    static final String RESULT_SUFFIX = ".result.json";
+
+    private final int loaders;
+    private final int workers;
+    private final int maxInFlight;
+    private final Path outputDirectory;
+
+    /**
+     * @param outputDirectory Where results are written, or null to only return them
+     */
+    public BatchPipeline(int loaders, int workers, int maxInFlight, Path outputDirectory) {
+        if (loaders < 1 || workers < 1 || maxInFlight < 1) {
+            throw new IllegalArgumentException("Loaders, workers and in-flight limit must be positive");
+        }
+        this.loaders = loaders;
+        this.workers = workers;
+        this.maxInFlight = maxInFlight;
+        this.outputDirectory = outputDirectory;
+    }
+
+    /** One loader, a worker per core and twice as many graphs in flight as workers. */
+    public BatchPipeline(Path outputDirectory) {
+        this(1, Runtime.getRuntime().availableProcessors(), 2 * Runtime.getRuntime().availableProcessors(),
+                outputDirectory);
+    }
+
+    public BatchReport run(List<Path> datasets) throws InterruptedException {
+        if (outputDirectory != null) {
+            try {
+                Files.createDirectories(outputDirectory);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Cannot create output directory " + outputDirectory, e);
+            }
+        }
+        GraphResult[] results = new GraphResult[datasets.size()];
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        ExecutorService loadPool = Executors.newFixedThreadPool(loaders);
+        ExecutorService analysisPool = Executors.newFixedThreadPool(workers);
+        CountDownLatch done = new CountDownLatch(datasets.size());
+
+        long begin = System.nanoTime();
+        try {
+            Set<String> resultFiles = new HashSet<>();
+            for (int i = 0; i < datasets.size(); i++) {
+                int index = i;
+                Path path = datasets.get(i);
+                if (!resultFiles.add(resultFileName(path))) {
+                    results[index] = GraphResult.failed(path, 0, new IllegalArgumentException(
+                            "Result file " + resultFileName(path) + " would overwrite an earlier dataset's"));
+                    done.countDown();
+                    continue;
+                }
+                loadPool.execute(() -> {
+                    try {
+                        inFlight.acquire();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        results[index] = GraphResult.failed(path, 0, e);
+                        done.countDown();
+                        return;
+                    }
+                    long loadStart = System.nanoTime();
+                    TaskGraph taskGraph;
+                    try {
+                        taskGraph = load(path);
+                    } catch (Exception e) {
+                        results[index] = GraphResult.failed(path, System.nanoTime() - loadStart, e);
+                        inFlight.release();
+                        done.countDown();
+                        return;
+                    }
+                    long loadTime = System.nanoTime() - loadStart;
+                    analysisPool.execute(() -> {
+                        try {
+                            results[index] = analyze(path, taskGraph, loadTime);
+                        } catch (Exception e) {
+                            results[index] = GraphResult.failed(path, loadTime, e);
+                        } finally {
+                            inFlight.release();
+                            done.countDown();
+                        }
+                    });
+                });
+            }
+            done.await();
+        } finally {
+            loadPool.shutdownNow();
+            analysisPool.shutdownNow();
+        }
+        return new BatchReport(Arrays.asList(results), System.nanoTime() - begin);
+    }
+
+    private static TaskGraph load(Path path) throws IOException {
+        return path.getFileName().toString().endsWith(".bin")
+                ? BinaryGraphFormat.map(path)
+                : JsonGraphLoader.load(path);
+    }
+
+    private GraphResult analyze(Path path, TaskGraph taskGraph, long loadTime) throws IOException {
+        DirectedGraph graph = taskGraph.graph;
+        Metrics metrics = new Metrics();
+        long start = System.nanoTime();
+
+        TarjanSCC tarjan = new TarjanSCC(graph, metrics);
+        metrics.time("scc", tarjan::findComponents);
+        Condensation condensation = metrics.time("condensation", () -> tarjan.buildCondensation(taskGraph.durations));
+        TopologicalSort topo = new TopologicalSort(metrics);
+        int[] componentOrder = metrics.time("topo", () -> topo.kahnTopologicalSort(condensation.dag));
+        // Only all-singleton partitions can be acyclic; Kahn also rules out self-loops
+        int[] order = metrics.time("vertex-order", () -> condensation.componentCount() == graph.vertexCount()
+                ? topo.kahnTopologicalSort(graph)
+                : new int[0]);
+        boolean acyclic = order.length == graph.vertexCount();
+        DAGShortestPath shortestPath = new DAGShortestPath(metrics);
+        DAGShortestPath.CriticalPathResult criticalPath = metrics.time("critical-path", () -> acyclic
+                ? shortestPath.findCriticalPath(graph, taskGraph.durations, order)
+                : shortestPath.findCondensedCriticalPath(condensation, componentOrder));
+        long analysisTime = System.nanoTime() - start;
+
+        GraphResult result = new GraphResult(path, taskGraph.name, graph.vertexCount(), graph.edgeCount(),
+                condensation.componentCount(), acyclic, criticalPath.length, criticalPath.nodes,
+                loadTime, analysisTime, metrics, null);
+        if (outputDirectory != null) {
+            writeResult(outputDirectory.resolve(resultFileName(path)), result);
+        }
+        return result;
+    }
+
+    /** File name of the result for an input: its own file name, extension included. */
+    static String resultFileName(Path path) {
+        return path.getFileName() + RESULT_SUFFIX;
+    }
+
+    private static void writeResult(Path file, GraphResult result) throws IOException {
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("{\n");
+            out.write("  \"name\": \"");
+            JsonGraphWriter.writeEscaped(out, result.name);
+            out.write("\",\n");
+            out.write("  \"vertices\": " + result.vertices + ",\n");
+            out.write("  \"edges\": " + result.edges + ",\n");
+            out.write("  \"components\": " + result.components + ",\n");
+            out.write("  \"acyclic\": " + result.acyclic + ",\n");
+            out.write("  \"criticalPathLength\": " + result.criticalPathLength + ",\n");
+            out.write("  \"criticalPath\": [");
+            for (int i = 0; i < result.criticalPath.length; i++) {
+                if (i > 0) out.write(", ");
+                out.write(Integer.toString(result.criticalPath[i]));
+            }
+            out.write("],\n");
+            out.write("  \"analysisNanos\": " + result.analysisTime + "\n");
+            out.write("}\n");
+        }
+    }
+
+    /**
+     * Outcome for one dataset. On failure only path, loadTime and error are set.
+     */
+    public static class GraphResult {
+        public final Path path;
+        public final String name;
+        public final int vertices;
+        public final int edges;
+        public final int components;
+        public final boolean acyclic;
+        public final int criticalPathLength;
+        public final int[] criticalPath;
+        public final long loadTime;
+        public final long analysisTime;
+        public final Metrics metrics;
+        public final Throwable error;
+
+        public GraphResult(Path path, String name, int vertices, int edges, int components, boolean acyclic,
+                           int criticalPathLength, int[] criticalPath, long loadTime, long analysisTime,
+                           Metrics metrics, Throwable error) {
+            this.path = path;
+            this.name = name;
+            this.vertices = vertices;
+            this.edges = edges;
+            this.components = components;
+            this.acyclic = acyclic;
+            this.criticalPathLength = criticalPathLength;
+            this.criticalPath = criticalPath;
+            this.loadTime = loadTime;
+            this.analysisTime = analysisTime;
+            this.metrics = metrics;
+            this.error = error;
+        }
+
+        static GraphResult failed(Path path, long loadTime, Throwable error) {
+            return new GraphResult(path, String.valueOf(path.getFileName()), 0, 0, 0, false, 0, new int[0],
+                    loadTime, 0, null, error);
+        }
+
+        public boolean succeeded() {
+            return error == null;
+        }
+
+        @Override
+        public String toString() {
+            if (!succeeded()) {
+                return String.format("%s: FAILED (%s)", name, error);
+            }
+            return String.format("%s: %d vertices, %d edges, %d SCCs, critical path %d, load %.1f ms, analysis %.1f ms",
+                    name, vertices, edges, components, criticalPathLength, loadTime / 1e6, analysisTime / 1e6);
+        }
+    }
+
+    /**
+     * Results in input order plus throughput over the whole batch.
+     */
+    public static class BatchReport {
+        public final List<GraphResult> results;
+        public final long elapsed;
+
+        public BatchReport(List<GraphResult> results, long elapsed) {
+            this.results = results;
+            this.elapsed = elapsed;
+        }
+
+        public int succeeded() {
+            int count = 0;
+            for (GraphResult result : results) {
+                if (result.succeeded()) count++;
+            }
+            return count;
+        }
+
+        public long totalEdges() {
+            long total = 0;
+            for (GraphResult result : results) {
+                total += result.edges;
+            }
+            return total;
+        }
+
+        public double graphsPerSecond() {
+            return elapsed == 0 ? 0 : succeeded() * 1e9 / elapsed;
+        }
+
+        public double edgesPerSecond() {
+            return elapsed == 0 ? 0 : totalEdges() * 1e9 / elapsed;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("BatchReport{graphs=%d, failed=%d, elapsed=%.1f ms, %.1f graphs/s, %.0f edges/s}",
+                    succeeded(), results.size() - succeeded(), elapsed / 1e6, graphsPerSecond(), edgesPerSecond());
+        }
+    }
+
+    /**
+     * Usage: BatchPipeline &lt;output dir&gt; &lt;dataset or directory&gt;... [--workers N] [--loaders N]
+     * Directories contribute every .json and .bin file in them except earlier results, so the
+     * output directory may also be an input.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        List<String> params = new ArrayList<>(Arrays.asList(args));
+        int cores = Runtime.getRuntime().availableProcessors();
+        int workers = takeOption(params, "--workers", cores);
+        int loaders = takeOption(params, "--loaders", 1);
+        if (params.size() < 2) {
+            System.err.println("Usage: BatchPipeline <output dir> <dataset or directory>... [--workers N] [--loaders N]");
+            return;
+        }
+
+        List<Path> datasets = new ArrayList<>();
+        for (String input : params.subList(1, params.size())) {
+            Path path = Paths.get(input);
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> files = Files.list(path)) {
+                    datasets.addAll(files.filter(BatchPipeline::isDataset)
+                            .sorted()
+                            .collect(Collectors.toList()));
+                }
+            } else {
+                datasets.add(path);
+            }
+        }
+
+        BatchReport report = new BatchPipeline(loaders, workers, 2 * workers, Paths.get(params.get(0))).run(datasets);
+        for (GraphResult result : report.results) {
+            System.out.println("   " + result);
+        }
+        System.out.println(report);
+    }
+
+    static boolean isDataset(Path path) {
+        String name = path.getFileName().toString();
+        return (name.endsWith(".json") && !name.endsWith(RESULT_SUFFIX)) || name.endsWith(".bin");
+    }
+
+    private static int takeOption(List<String> params, String name, int defaultValue) {
+        int index = params.indexOf(name);
+        if (index < 0 || index + 1 >= params.size()) {
+            return defaultValue;
+        }
+        int value = Integer.parseInt(params.get(index + 1));
+        params.subList(index, index + 2).clear();
+        return value;
+    }
+}
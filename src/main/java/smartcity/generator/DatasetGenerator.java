@@ -1,12 +1,90 @@
 package smartcity.generator;
 
+import smartcity.graph.CSRGraph;
+import smartcity.io.BinaryGraphFormat;
+import smartcity.io.JsonGraphWriter;
+import smartcity.model.TaskGraph;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.*;
 
 public class DatasetGenerator {
-    private Random random = new Random(42);
+    private Random random;
+    private boolean binaryOutput;
+
+    public DatasetGenerator() {
+        this(42);
+    }
+
+    public DatasetGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Also write each dataset as data/&lt;name&gt;.bin in the memory-mappable BinaryGraphFormat.
+     */
+    public void setBinaryOutput(boolean binaryOutput) {
+        this.binaryOutput = binaryOutput;
+    }
+
+    /**
+     * Generate one large dataset into data/:
+     * <pre>
+     * er      &lt;name&gt; &lt;n&gt; &lt;avgDegree&gt; [seed]          Erdős–Rényi with cycles
+     * er-dag  &lt;name&gt; &lt;n&gt; &lt;avgDegree&gt; [seed]          Erdős–Rényi DAG
+     * ba      &lt;name&gt; &lt;n&gt; &lt;edgesPerVertex&gt; [seed]     preferential attachment DAG
+     * layered &lt;name&gt; &lt;depth&gt; &lt;width&gt; &lt;degree&gt; [seed] layered DAG
+     * scc     &lt;name&gt; &lt;components&gt; &lt;size&gt; &lt;interEdges&gt; [seed] planted SCCs
+     * </pre>
+     * Add --binary to also write the .bin file.
+     */
+    public static void main(String[] args) throws IOException {
+        List<String> params = new ArrayList<>(Arrays.asList(args));
+        boolean binary = params.remove("--binary");
+        if (params.size() < 4) {
+            System.err.println("Usage: DatasetGenerator <er|er-dag|ba|layered|scc> <name> <size...> [seed] [--binary]");
+            return;
+        }
+        String model = params.get(0);
+        String name = params.get(1);
+        int arity = model.equals("layered") || model.equals("scc") ? 5 : 4;
+        long seed = params.size() > arity ? Long.parseLong(params.get(arity)) : 42;
+
+        long start = System.nanoTime();
+        TaskGraph taskGraph;
+        switch (model) {
+            case "er":
+            case "er-dag":
+                int n = Integer.parseInt(params.get(2));
+                long edges = (long) (n * Double.parseDouble(params.get(3)));
+                taskGraph = GraphGenerators.erdosRenyiWithEdges(name, n, edges, model.equals("er-dag"), seed);
+                break;
+            case "ba":
+                taskGraph = GraphGenerators.preferentialAttachment(name, Integer.parseInt(params.get(2)),
+                        Integer.parseInt(params.get(3)), seed);
+                break;
+            case "layered":
+                taskGraph = GraphGenerators.layeredDag(name, Integer.parseInt(params.get(2)),
+                        Integer.parseInt(params.get(3)), Integer.parseInt(params.get(4)), seed);
+                break;
+            case "scc":
+                int[] sizes = new int[Integer.parseInt(params.get(2))];
+                Arrays.fill(sizes, Integer.parseInt(params.get(3)));
+                taskGraph = GraphGenerators.plantedSccs(name, sizes, 0, Long.parseLong(params.get(4)), seed);
+                break;
+            default:
+                System.err.println("Unknown model: " + model);
+                return;
+        }
+        long generated = System.nanoTime();
+
+        DatasetGenerator generator = new DatasetGenerator(seed);
+        generator.setBinaryOutput(binary);
+        generator.writeDataset(taskGraph, Collections.singletonMap("model", "\"" + model + "\""));
+        System.out.printf("Generated %s in %d ms, written in %d ms%n", taskGraph,
+                (generated - start) / 1_000_000, (System.nanoTime() - generated) / 1_000_000);
+    }
 
     public void generateAllDatasets() {
         System.out.println("Generating all datasets...");
@@ -34,54 +112,47 @@ public class DatasetGenerator {
 
     private void generateDataset(String name, int nodes, double density, boolean allowCycles, int expectedCycles) {
         try {
-            String jsonContent = generateJSON(name, nodes, density, allowCycles, expectedCycles);
-            File file = new File("data/" + name + ".json");
-            try (FileWriter writer = new FileWriter(file)) {
-                writer.write(jsonContent);
-                System.out.printf("Generated %s: %d nodes%n", name, nodes);
-            }
+            TaskGraph taskGraph = generateTaskGraph(name, nodes, density, allowCycles, expectedCycles);
+
+            Map<String, String> fields = new LinkedHashMap<>();
+            fields.put("density", String.valueOf(density));
+            fields.put("allowCycles", String.valueOf(allowCycles));
+            writeDataset(taskGraph, fields);
+            System.out.printf("Generated %s: %d nodes%n", name, nodes);
         } catch (IOException e) {
             System.err.println("Error writing dataset " + name + ": " + e.getMessage());
         }
     }
 
-    private String generateJSON(String name, int nodes, double density, boolean allowCycles, int expectedCycles) {
-        StringBuilder json = new StringBuilder();
-        json.append("{\n");
-        json.append("  \"name\": \"").append(name).append("\",\n");
-        json.append("  \"nodes\": ").append(nodes).append(",\n");
-        json.append("  \"density\": ").append(density).append(",\n");
-        json.append("  \"allowCycles\": ").append(allowCycles).append(",\n");
-
-        Map<Integer, List<Integer>> graph = generateGraph(nodes, density, allowCycles, expectedCycles);
-        json.append("  \"graph\": {\n");
-        boolean firstNode = true;
-        for (int i = 0; i < nodes; i++) {
-            if (!firstNode) json.append(",\n");
-            json.append("    \"").append(i).append("\": [");
-            List<Integer> neighbors = graph.getOrDefault(i, new ArrayList<>());
-            boolean firstNeighbor = true;
-            for (Integer neighbor : neighbors) {
-                if (!firstNeighbor) json.append(", ");
-                json.append(neighbor);
-                firstNeighbor = false;
-            }
-            json.append("]");
-            firstNode = false;
+    /**
+     * Stream a dataset to data/&lt;name&gt;.json, and to data/&lt;name&gt;.bin when binary output is on.
+     * @param extraFields Additional top-level JSON members, as raw JSON values
+     */
+    public void writeDataset(TaskGraph taskGraph, Map<String, String> extraFields) throws IOException {
+        File dataDir = new File("data");
+        if (!dataDir.exists()) {
+            dataDir.mkdirs();
+        }
+        JsonGraphWriter.write(Paths.get("data", taskGraph.name + ".json"), taskGraph, extraFields);
+        if (binaryOutput) {
+            BinaryGraphFormat.write(Paths.get("data", taskGraph.name + ".bin"), taskGraph);
         }
-        json.append("\n  },\n");
+    }
 
-        json.append("  \"durations\": {\n");
-        boolean firstDuration = true;
+    /**
+     * Generate a dataset in memory using the same random model as the bundled data files:
+     * every ordered pair becomes an edge with probability density, optionally followed by
+     * planted cycles, and each task gets a duration of 1-10.
+     * This model visits all n^2 pairs and is kept only so the bundled files stay reproducible;
+     * large datasets come from GraphGenerators.
+     */
+    public TaskGraph generateTaskGraph(String name, int nodes, double density, boolean allowCycles, int numCycles) {
+        Map<Integer, List<Integer>> graph = generateGraph(nodes, density, allowCycles, numCycles);
+        int[] durations = new int[nodes];
         for (int i = 0; i < nodes; i++) {
-            if (!firstDuration) json.append(",\n");
-            json.append("    \"").append(i).append("\": ").append(random.nextInt(10) + 1);
-            firstDuration = false;
+            durations[i] = random.nextInt(10) + 1;
         }
-        json.append("\n  }\n");
-        json.append("}");
-
-        return json.toString();
+        return new TaskGraph(name, CSRGraph.fromAdjacencyMap(graph), durations);
     }
 
     private Map<Integer, List<Integer>> generateGraph(int nodes, double density, boolean allowCycles, int numCycles) {
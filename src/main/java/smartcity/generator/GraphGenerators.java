@@ -0,0 +1,299 @@
+package smartcity.generator;
+
+import smartcity.graph.CSRGraph;
+import smartcity.graph.IntList;
+import smartcity.model.TaskGraph;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Synthetic task graphs in O(n + m) time, for sizes far beyond the bundled datasets.
+ *
+ * Random streams come from SplittableRandom: the root generator is split once per chunk of
+ * CHUNK vertices, in chunk order, before any work starts, so the output depends only on the
+ * seed and never on the number of threads. Chunks generate in parallel on the common pool and
+ * are concatenated straight into CSR arrays. Every task gets a duration of 1-10, like the
+ * bundled datasets.
+ */
+public final class GraphGenerators {
+    private static final int CHUNK = 1 << 12;
+
+    private GraphGenerators() {
+    }
+
+    /**
+     * Erdős–Rényi G(n, p): every ordered pair (or every pair u &lt; v when acyclic) is an edge
+     * with probability p. Candidates are skipped geometrically, so a vertex costs O(1 + degree)
+     * instead of O(n).
+     */
+    public static TaskGraph erdosRenyi(String name, int n, double p, boolean acyclic, long seed) {
+        SplittableRandom root = new SplittableRandom(seed);
+        int[] durations = durations(n, root.split());
+        double logQ = p < 1 ? Math.log1p(-p) : 0;
+
+        ChunkedRows rows = new ChunkedRows(n, root);
+        rows.generate((u, random, out) -> {
+            if (p <= 0) {
+                return;
+            }
+            // Candidates 0..K-1 map to targets: u+1.. for a DAG, every vertex but u otherwise
+            long candidates = acyclic ? n - 1L - u : n - 1L;
+            long c = -1;
+            while (true) {
+                c += p >= 1 ? 1 : 1 + (long) (Math.log(1 - random.nextDouble()) / logQ);
+                if (c >= candidates) {
+                    break;
+                }
+                out.add(acyclic ? (int) (u + 1 + c) : (int) (c < u ? c : c + 1));
+            }
+        });
+        return new TaskGraph(name, rows.build(), durations);
+    }
+
+    /**
+     * G(n, p) with p chosen so the expected edge count is edges.
+     */
+    public static TaskGraph erdosRenyiWithEdges(String name, int n, long edges, boolean acyclic, long seed) {
+        double pairs = acyclic ? (double) n * (n - 1) / 2 : (double) n * (n - 1);
+        return erdosRenyi(name, n, pairs == 0 ? 0 : Math.min(1, edges / pairs), acyclic, seed);
+    }
+
+    /**
+     * Preferential attachment (Barabási–Albert style): vertex v depends on edgesPerVertex
+     * distinct earlier vertices, picked with probability proportional to their degree by
+     * sampling the list of all edge endpoints. Edges point from the older vertex to the newer,
+     * so the graph is a DAG with a heavy-tailed out-degree distribution. Inherently sequential.
+     */
+    public static TaskGraph preferentialAttachment(String name, int n, int edgesPerVertex, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] durations = durations(n, random.split());
+        long expected = (long) n * edgesPerVertex;
+        CSRGraph.Builder builder = new CSRGraph.Builder(n, (int) Math.min(expected, Integer.MAX_VALUE - 8));
+        IntList endpoints = new IntList((int) Math.min(2 * expected, Integer.MAX_VALUE - 8));
+        int[] chosen = new int[edgesPerVertex];
+
+        for (int v = 1; v < n; v++) {
+            int k = Math.min(edgesPerVertex, v);
+            int count = 0;
+            while (count < k) {
+                // Mix in uniform picks so low-degree vertices stay reachable
+                int u = endpoints.isEmpty() || random.nextBoolean()
+                        ? random.nextInt(v)
+                        : endpoints.get(random.nextInt(endpoints.size()));
+                boolean duplicate = false;
+                for (int i = 0; i < count && !duplicate; i++) {
+                    duplicate = chosen[i] == u;
+                }
+                if (!duplicate) {
+                    chosen[count++] = u;
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                builder.addEdge(chosen[i], v);
+                endpoints.add(chosen[i]);
+                endpoints.add(v);
+            }
+        }
+        return new TaskGraph(name, builder.build(), durations);
+    }
+
+    /**
+     * Layered DAG with depth layers of width vertices. Each vertex outside the first layer
+     * depends on up to degree distinct vertices of the layer before it, which fixes both the
+     * critical path depth and the available parallelism.
+     */
+    public static TaskGraph layeredDag(String name, int depth, int width, int degree, long seed) {
+        long total = (long) depth * width;
+        if (total > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException(depth + " x " + width + " vertices exceed the int range");
+        }
+        int n = (int) total;
+        SplittableRandom root = new SplittableRandom(seed);
+        int[] durations = durations(n, root.split());
+        int k = Math.min(degree, width);
+
+        // Rows list predecessors here; transposing turns them into the successor lists
+        ChunkedRows rows = new ChunkedRows(n, root);
+        rows.generate((v, random, out) -> {
+            if (v < width) {
+                return;
+            }
+            int previous = (v / width - 1) * width;
+            int first = out.size();
+            while (out.size() - first < k) {
+                int u = previous + random.nextInt(width);
+                boolean duplicate = false;
+                for (int i = first; i < out.size() && !duplicate; i++) {
+                    duplicate = out.get(i) == u;
+                }
+                if (!duplicate) {
+                    out.add(u);
+                }
+            }
+        });
+        return new TaskGraph(name, CSRGraph.transpose(rows.build()), durations);
+    }
+
+    /**
+     * Graph whose strongly connected components have exactly the given sizes. Each component
+     * is a ring plus extra random internal edges; interEdges more edges always run from an
+     * earlier component to a later one, so no two components merge. Vertex ids are shuffled.
+     */
+    public static TaskGraph plantedSccs(String name, int[] sizes, int extraPerComponent, long interEdges, long seed) {
+        long total = 0;
+        for (int size : sizes) {
+            if (size < 1) {
+                throw new IllegalArgumentException("Component sizes must be positive");
+            }
+            total += size;
+        }
+        if (total > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many vertices: " + total);
+        }
+        int n = (int) total;
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] durations = durations(n, random.split());
+
+        int[] id = new int[n];
+        for (int i = 0; i < n; i++) {
+            id[i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = id[i];
+            id[i] = id[j];
+            id[j] = tmp;
+        }
+        int[] start = new int[sizes.length + 1];
+        for (int c = 0; c < sizes.length; c++) {
+            start[c + 1] = start[c] + sizes[c];
+        }
+
+        CSRGraph.Builder builder = new CSRGraph.Builder(n);
+        for (int c = 0; c < sizes.length; c++) {
+            int size = sizes[c];
+            if (size == 1) {
+                continue;
+            }
+            for (int i = 0; i < size; i++) {
+                builder.addEdge(id[start[c] + i], id[start[c] + (i + 1) % size]);
+            }
+            for (int i = 0; i < extraPerComponent; i++) {
+                builder.addEdge(id[start[c] + random.nextInt(size)], id[start[c] + random.nextInt(size)]);
+            }
+        }
+        if (sizes.length > 1) {
+            for (long i = 0; i < interEdges; i++) {
+                int a = random.nextInt(sizes.length);
+                int b = random.nextInt(sizes.length - 1);
+                if (b >= a) {
+                    b++;
+                }
+                int from = Math.min(a, b);
+                int to = Math.max(a, b);
+                builder.addEdge(id[start[from] + random.nextInt(sizes[from])],
+                        id[start[to] + random.nextInt(sizes[to])]);
+            }
+        }
+        return new TaskGraph(name, builder.build(), durations);
+    }
+
+    private static int[] durations(int n, SplittableRandom random) {
+        int[] durations = new int[n];
+        for (int v = 0; v < n; v++) {
+            durations[v] = random.nextInt(10) + 1;
+        }
+        return durations;
+    }
+
+    /** Produces the list of one vertex into out, using the random stream of its chunk. */
+    private interface RowGenerator {
+        void generate(int v, SplittableRandom random, IntList out);
+    }
+
+    /**
+     * Per-vertex adjacency rows generated chunk by chunk in parallel and concatenated in
+     * vertex order into a CSR graph.
+     */
+    private static final class ChunkedRows {
+        private final int n;
+        private final SplittableRandom[] randoms;
+        private final IntList[] chunks;
+        private final int[] degree;
+
+        ChunkedRows(int n, SplittableRandom root) {
+            this.n = n;
+            int count = (n + CHUNK - 1) / CHUNK;
+            this.randoms = new SplittableRandom[count];
+            for (int i = 0; i < count; i++) {
+                randoms[i] = root.split();
+            }
+            this.chunks = new IntList[count];
+            this.degree = new int[n];
+        }
+
+        void generate(RowGenerator generator) {
+            ForkJoinPool.commonPool().invoke(new ChunkRange(this, generator, 0, chunks.length));
+        }
+
+        void generateChunk(RowGenerator generator, int chunk) {
+            IntList out = new IntList();
+            int from = chunk * CHUNK;
+            int to = Math.min(n, from + CHUNK);
+            for (int v = from; v < to; v++) {
+                int before = out.size();
+                generator.generate(v, randoms[chunk], out);
+                degree[v] = out.size() - before;
+            }
+            chunks[chunk] = out;
+        }
+
+        CSRGraph build() {
+            int[] offsets = new int[n + 1];
+            for (int v = 0; v < n; v++) {
+                long next = (long) offsets[v] + degree[v];
+                if (next > Integer.MAX_VALUE - 8) {
+                    throw new IllegalStateException("Edge count exceeds the int range");
+                }
+                offsets[v + 1] = (int) next;
+            }
+            int[] targets = new int[offsets[n]];
+            int position = 0;
+            for (int i = 0; i < chunks.length; i++) {
+                chunks[i].copyTo(targets, position);
+                position += chunks[i].size();
+                chunks[i] = null;
+            }
+            return CSRGraph.of(offsets, targets);
+        }
+    }
+
+    private static final class ChunkRange extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final ChunkedRows rows;
+        private final RowGenerator generator;
+        private final int from;
+        private final int to;
+
+        ChunkRange(ChunkedRows rows, RowGenerator generator, int from, int to) {
+            this.rows = rows;
+            this.generator = generator;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new ChunkRange(rows, generator, from, mid), new ChunkRange(rows, generator, mid, to));
+                return;
+            }
+            if (from < to) {
+                rows.generateChunk(generator, from);
+            }
+        }
+    }
+}
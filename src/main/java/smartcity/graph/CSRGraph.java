@@ -0,0 +1,204 @@
+package smartcity.graph;
+
+import java.util.*;
+
+/**
+ * Immutable directed graph in compressed sparse row form.
+ * The successors of vertex v are targets[offsets[v]] .. targets[offsets[v + 1] - 1].
+ */
+public final class CSRGraph implements DirectedGraph {
+    private final int[] offsets;
+    private final int[] targets;
+
+    CSRGraph(int[] offsets, int[] targets) {
+        this.offsets = offsets;
+        this.targets = targets;
+    }
+
+    /**
+     * Wrap existing CSR arrays without copying. The arrays must not be modified afterwards.
+     */
+    public static CSRGraph of(int[] offsets, int[] targets) {
+        if (offsets.length == 0 || offsets[0] != 0 || offsets[offsets.length - 1] != targets.length) {
+            throw new IllegalArgumentException("Offsets must start at 0 and end at " + targets.length);
+        }
+        return new CSRGraph(offsets, targets);
+    }
+
+    /**
+     * Adapt the adjacency map form used by the original algorithms.
+     * Successor order of every vertex is preserved.
+     */
+    public static CSRGraph fromAdjacencyMap(Map<Integer, List<Integer>> graph) {
+        int n = graph.size();
+        int m = 0;
+        for (Map.Entry<Integer, List<Integer>> entry : graph.entrySet()) {
+            n = Math.max(n, entry.getKey() + 1);
+            for (int neighbor : entry.getValue()) {
+                n = Math.max(n, neighbor + 1);
+                m++;
+            }
+        }
+
+        int[] offsets = new int[n + 1];
+        for (Map.Entry<Integer, List<Integer>> entry : graph.entrySet()) {
+            offsets[entry.getKey() + 1] = entry.getValue().size();
+        }
+        for (int v = 0; v < n; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+
+        int[] targets = new int[m];
+        for (Map.Entry<Integer, List<Integer>> entry : graph.entrySet()) {
+            int pos = offsets[entry.getKey()];
+            for (int neighbor : entry.getValue()) {
+                targets[pos++] = neighbor;
+            }
+        }
+        return new CSRGraph(offsets, targets);
+    }
+
+    /**
+     * Build the reverse graph: u -> v becomes v -> u.
+     * Predecessors of each vertex are listed in ascending order.
+     */
+    public static CSRGraph transpose(DirectedGraph graph) {
+        int n = graph.vertexCount();
+        int[] offsets = new int[n + 1];
+        for (int e = 0, m = graph.edgeCount(); e < m; e++) {
+            offsets[graph.target(e) + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+
+        int[] cursor = Arrays.copyOf(offsets, n);
+        int[] targets = new int[graph.edgeCount()];
+        for (int u = 0; u < n; u++) {
+            for (int e = graph.edgeStart(u), end = graph.edgeEnd(u); e < end; e++) {
+                targets[cursor[graph.target(e)]++] = u;
+            }
+        }
+        return new CSRGraph(offsets, targets);
+    }
+
+    @Override public int vertexCount() { return offsets.length - 1; }
+    @Override public int edgeCount() { return targets.length; }
+
+    @Override public int edgeStart(int v) { return offsets[v]; }
+    @Override public int edgeEnd(int v) { return offsets[v + 1]; }
+    @Override public int target(int edge) { return targets[edge]; }
+
+    @Override
+    public int outDegree(int v) {
+        return offsets[v + 1] - offsets[v];
+    }
+
+    /**
+     * Convert back to the adjacency map form, with an entry for every vertex.
+     */
+    public Map<Integer, List<Integer>> toAdjacencyMap() {
+        int n = vertexCount();
+        Map<Integer, List<Integer>> graph = new HashMap<>();
+        for (int v = 0; v < n; v++) {
+            List<Integer> neighbors = new ArrayList<>(outDegree(v));
+            for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                neighbors.add(targets[e]);
+            }
+            graph.put(v, neighbors);
+        }
+        return graph;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CSRGraph{vertices=%d, edges=%d}", vertexCount(), edgeCount());
+    }
+
+    /**
+     * Collects edges in primitive arrays and lays them out in CSR form on build().
+     * Edges of the same source keep their insertion order.
+     * A builder created without a vertex count grows it to cover every edge endpoint.
+     */
+    public static class Builder {
+        private final boolean growable;
+        private int vertexCount;
+        private int[] from;
+        private int[] to;
+        private int size;
+
+        public Builder() {
+            this(0, 16, true);
+        }
+
+        public Builder(int vertexCount) {
+            this(vertexCount, 16);
+        }
+
+        public Builder(int vertexCount, int expectedEdges) {
+            this(vertexCount, expectedEdges, false);
+        }
+
+        private Builder(int vertexCount, int expectedEdges, boolean growable) {
+            if (vertexCount < 0) {
+                throw new IllegalArgumentException("Negative vertex count: " + vertexCount);
+            }
+            this.growable = growable;
+            this.vertexCount = vertexCount;
+            int capacity = Math.max(expectedEdges, 1);
+            this.from = new int[capacity];
+            this.to = new int[capacity];
+        }
+
+        public int vertexCount() { return vertexCount; }
+        public int edgeCount() { return size; }
+
+        /**
+         * Make sure vertices 0..n-1 exist even if they have no edges.
+         */
+        public Builder ensureVertexCount(int n) {
+            if (n > vertexCount) {
+                if (!growable) {
+                    throw new IllegalStateException("Builder was created for " + vertexCount + " vertices");
+                }
+                vertexCount = n;
+            }
+            return this;
+        }
+
+        public Builder addEdge(int u, int v) {
+            if (growable && u >= 0 && v >= 0) {
+                ensureVertexCount(Math.max(u, v) + 1);
+            }
+            if (u < 0 || u >= vertexCount || v < 0 || v >= vertexCount) {
+                throw new IndexOutOfBoundsException("Edge " + u + "->" + v + " outside 0.." + (vertexCount - 1));
+            }
+            if (size == from.length) {
+                int capacity = size + (size >> 1) + 1;
+                from = Arrays.copyOf(from, capacity);
+                to = Arrays.copyOf(to, capacity);
+            }
+            from[size] = u;
+            to[size] = v;
+            size++;
+            return this;
+        }
+
+        public CSRGraph build() {
+            int[] offsets = new int[vertexCount + 1];
+            for (int i = 0; i < size; i++) {
+                offsets[from[i] + 1]++;
+            }
+            for (int v = 0; v < vertexCount; v++) {
+                offsets[v + 1] += offsets[v];
+            }
+
+            int[] cursor = Arrays.copyOf(offsets, vertexCount);
+            int[] targets = new int[size];
+            for (int i = 0; i < size; i++) {
+                targets[cursor[from[i]]++] = to[i];
+            }
+            return new CSRGraph(offsets, targets);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package smartcity.graph;
+
+/**
+ * Read-only directed graph over vertices 0..vertexCount()-1 in CSR layout:
+ * the successors of v are target(e) for edgeStart(v) <= e < edgeEnd(v).
+ */
+public interface DirectedGraph {
+    int vertexCount();
+    int edgeCount();
+
+    int edgeStart(int v);
+    int edgeEnd(int v);
+    int target(int edge);
+
+    default int outDegree(int v) {
+        return edgeEnd(v) - edgeStart(v);
+    }
+}
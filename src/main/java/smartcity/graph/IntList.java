@@ -0,0 +1,92 @@
+package smartcity.graph;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Growable list of primitive ints, used where a List&lt;Integer&gt; would box every element.
+ */
+public final class IntList {
+    private int[] values;
+    private int size;
+
+    public IntList() {
+        this(16);
+    }
+
+    public IntList(int capacity) {
+        this.values = new int[Math.max(capacity, 1)];
+    }
+
+    public void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size + (size >> 1) + 1);
+        }
+        values[size++] = value;
+    }
+
+    public void addAll(int[] source, int from, int to) {
+        int count = to - from;
+        if (size + count > values.length) {
+            values = Arrays.copyOf(values, Math.max(size + count, size + (size >> 1) + 1));
+        }
+        System.arraycopy(source, from, values, size, count);
+        size += count;
+    }
+
+    public int get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        return values[index];
+    }
+
+    public int removeLast() {
+        if (size == 0) {
+            throw new IndexOutOfBoundsException("List is empty");
+        }
+        return values[--size];
+    }
+
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    /** Copy all elements into target starting at position. */
+    public void copyTo(int[] target, int position) {
+        System.arraycopy(values, 0, target, position, size);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+
+    /**
+     * Read-only List view of an int array. Elements are boxed one at a time on access,
+     * so wrapping a long path costs nothing until it is actually read.
+     */
+    public static List<Integer> asList(int[] values) {
+        return new ArrayView(values);
+    }
+
+    private static final class ArrayView extends AbstractList<Integer> implements RandomAccess {
+        private final int[] values;
+
+        ArrayView(int[] values) {
+            this.values = values;
+        }
+
+        @Override public Integer get(int index) { return values[index]; }
+        @Override public int size() { return values.length; }
+    }
+}
@@ -0,0 +1,30 @@
+package smartcity.graph;
+
+/**
+ * Directed graph whose edge indices are longs, for graphs with more than 2^31 edges.
+ * Same CSR contract as {@link DirectedGraph}: the successors of v are target(e) for
+ * edgeStart(v) <= e < edgeEnd(v). Vertex ids stay ints.
+ */
+public interface LongDirectedGraph {
+    int vertexCount();
+    long edgeCount();
+
+    long edgeStart(int v);
+    long edgeEnd(int v);
+    int target(long edge);
+
+    default long outDegree(int v) {
+        return edgeEnd(v) - edgeStart(v);
+    }
+
+    /** View of an int-indexed graph through this interface, without copying. */
+    static LongDirectedGraph of(DirectedGraph graph) {
+        return new LongDirectedGraph() {
+            @Override public int vertexCount() { return graph.vertexCount(); }
+            @Override public long edgeCount() { return graph.edgeCount(); }
+            @Override public long edgeStart(int v) { return graph.edgeStart(v); }
+            @Override public long edgeEnd(int v) { return graph.edgeEnd(v); }
+            @Override public int target(long edge) { return graph.target((int) edge); }
+        };
+    }
+}
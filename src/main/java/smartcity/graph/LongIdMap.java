@@ -0,0 +1,131 @@
+package smartcity.graph;
+
+import java.util.Arrays;
+
+/**
+ * Interns sparse 64-bit task ids as dense vertex ids 0..n-1, in first-seen order.
+ *
+ * Open addressing with linear probing over a power-of-two table of dense ids; the external id
+ * of dense id d is ids[d], so a slot is a single int and nothing is boxed. The table is kept at
+ * most half full. JsonGraphLoader.load(reader, name, map) interns ids at ingest; results computed
+ * on dense ids are mapped back with {@link #toExternal(int[])}, or with the toExternal helpers
+ * of CriticalPathResult and SCCFinder.
+ */
+public final class LongIdMap {
+    private static final int EMPTY = -1;
+    private static final int MAX_TABLE = 1 << 30;
+
+    private long[] ids;
+    private int[] table;
+    private int mask;
+    private int size;
+
+    public LongIdMap() {
+        this(16);
+    }
+
+    public LongIdMap(int expectedSize) {
+        this.ids = new long[Math.max(expectedSize, 1)];
+        int capacity = Integer.highestOneBit((int) Math.min(2L * expectedSize, MAX_TABLE / 2)) << 1;
+        this.table = new int[Math.max(capacity, 4)];
+        Arrays.fill(table, EMPTY);
+        this.mask = table.length - 1;
+    }
+
+    /**
+     * Dense id of the given external id, assigning the next free one on first sight.
+     */
+    public int intern(long id) {
+        int slot = slot(id);
+        while (true) {
+            int dense = table[slot];
+            if (dense == EMPTY) {
+                break;
+            }
+            if (ids[dense] == id) {
+                return dense;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (size == MAX_TABLE - 1) {
+            throw new IllegalStateException("Too many distinct ids");
+        }
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, (int) Math.min((long) size + (size >> 1) + 1, MAX_TABLE));
+        }
+        int dense = size++;
+        ids[dense] = id;
+        table[slot] = dense;
+        if (2L * size > table.length && table.length < MAX_TABLE) {
+            rehash();
+        }
+        return dense;
+    }
+
+    /** Dense id of the given external id, or -1 if it was never interned. */
+    public int get(long id) {
+        for (int slot = slot(id); ; slot = (slot + 1) & mask) {
+            int dense = table[slot];
+            if (dense == EMPTY || ids[dense] == id) {
+                return dense;
+            }
+        }
+    }
+
+    public long externalId(int dense) {
+        if (dense >= size) {
+            throw new IndexOutOfBoundsException("Dense id " + dense + " out of bounds for size " + size);
+        }
+        return ids[dense];
+    }
+
+    public int size() { return size; }
+
+    /** External ids indexed by dense id. */
+    public long[] externalIds() {
+        return Arrays.copyOf(ids, size);
+    }
+
+    /** Map dense ids, e.g. a topological order or critical path, back to external ids. */
+    public long[] toExternal(int[] dense) {
+        long[] external = new long[dense.length];
+        for (int i = 0; i < dense.length; i++) {
+            external[i] = externalId(dense[i]);
+        }
+        return external;
+    }
+
+    /**
+     * Map a grouped partition, such as SCC members with their offsets, back to external ids.
+     * Group g spans members[offsets[g]] .. members[offsets[g + 1] - 1].
+     */
+    public long[][] toExternal(int[] members, int[] offsets, int groupCount) {
+        long[][] groups = new long[groupCount][];
+        for (int g = 0; g < groupCount; g++) {
+            long[] group = new long[offsets[g + 1] - offsets[g]];
+            for (int i = 0; i < group.length; i++) {
+                group[i] = externalId(members[offsets[g] + i]);
+            }
+            groups[g] = group;
+        }
+        return groups;
+    }
+
+    private int slot(long id) {
+        // Fibonacci hashing spreads clustered ids such as sequences over the whole table
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+
+    private void rehash() {
+        table = new int[table.length << 1];
+        Arrays.fill(table, EMPTY);
+        mask = table.length - 1;
+        for (int dense = 0; dense < size; dense++) {
+            int slot = slot(ids[dense]);
+            while (table[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = dense;
+        }
+    }
+}
@@ -1,49 +1,233 @@
 package smartcity.graph;
 
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Operation counters, a stopwatch and named timing scopes shared by the algorithms.
+ *
+ * Counters are LongAdders, so one instance can be shared by parallel algorithms without
+ * losing counts or overflowing. Hot loops count locally and report once through the add
+ * methods. The stopwatch is per thread, like scopes, so algorithms timing themselves on
+ * different threads do not overwrite each other's start and end; getElapsedTime() reports the
+ * calling thread's last run. Scopes nest per thread: a scope opened inside "analysis" is
+ * recorded as "analysis/scc", and every close adds a sample to that path's LatencyHistogram,
+ * so repeated runs build up a distribution. reset() clears counters and the calling thread's
+ * stopwatch but keeps the histograms; clearScopes() drops those.
+ *
+ * Use {@link #disabled()} where no instrumentation is wanted: every mutator of that instance
+ * is empty, so once the call site is monomorphic the JIT inlines the calls away.
+ */
 public class Metrics {
-    private long startTime;
-    private long endTime;
-    private int dfsVisits;
-    private int edgeRelaxations;
-    private int queueOperations;
+    private static final Metrics DISABLED = new NoOpMetrics();
+
+    /** Start and end of the calling thread's stopwatch, in nanoseconds. */
+    private final ThreadLocal<long[]> stopwatch = ThreadLocal.withInitial(() -> new long[2]);
+    private final LongAdder dfsVisits = new LongAdder();
+    private final LongAdder edgeRelaxations = new LongAdder();
+    private final LongAdder queueOperations = new LongAdder();
+    private final LongAdder tasksRun = new LongAdder();
+    private final LongAdder taskTime = new LongAdder();
+    private final LongAdder queueWait = new LongAdder();
+
+    private final Map<String, LatencyHistogram> histograms = Collections.synchronizedMap(new LinkedHashMap<>());
+    private final ThreadLocal<Scope> currentScope = new ThreadLocal<>();
+
+    /** Shared instance that records nothing. */
+    public static Metrics disabled() {
+        return DISABLED;
+    }
 
     public void startTimer() {
-        this.startTime = System.nanoTime();
+        stopwatch.get()[0] = System.nanoTime();
     }
 
     public void stopTimer() {
-        this.endTime = System.nanoTime();
+        stopwatch.get()[1] = System.nanoTime();
     }
 
     public long getElapsedTime() {
-        return endTime - startTime;
+        long[] times = stopwatch.get();
+        return times[1] - times[0];
     }
 
     public void incrementDfsVisits() {
-        dfsVisits++;
+        dfsVisits.increment();
     }
 
     public void incrementEdgeRelaxations() {
-        edgeRelaxations++;
+        edgeRelaxations.increment();
     }
 
     public void incrementQueueOperations() {
-        queueOperations++;
+        queueOperations.increment();
+    }
+
+    public void addDfsVisits(long count) {
+        dfsVisits.add(count);
+    }
+
+    public void addEdgeRelaxations(long count) {
+        edgeRelaxations.add(count);
     }
 
-    public int getDfsVisits() { return dfsVisits; }
-    public int getEdgeRelaxations() { return edgeRelaxations; }
-    public int getQueueOperations() { return queueOperations; }
+    public void addQueueOperations(long count) {
+        queueOperations.add(count);
+    }
+
+    /**
+     * Record executed tasks: their count, summed wall time and summed time spent waiting
+     * between becoming ready and starting, both in nanoseconds.
+     */
+    public void addTaskTimes(int count, long wallNanos, long waitNanos) {
+        tasksRun.add(count);
+        taskTime.add(wallNanos);
+        queueWait.add(waitNanos);
+    }
+
+    /**
+     * Open a timing scope nested in the calling thread's current scope. Close it (preferably
+     * with try-with-resources) on the same thread.
+     */
+    public Scope scope(String name) {
+        Scope parent = currentScope.get();
+        Scope scope = new Scope(this, parent, parent == null ? name : parent.path + "/" + name);
+        currentScope.set(scope);
+        return scope;
+    }
+
+    /** Run body inside a scope of the given name and return its result. */
+    public <T> T time(String name, Supplier<T> body) {
+        Scope scope = scope(name);
+        try {
+            return body.get();
+        } finally {
+            scope.close();
+        }
+    }
+
+    /** Run body inside a scope of the given name. */
+    public void time(String name, Runnable body) {
+        Scope scope = scope(name);
+        try {
+            body.run();
+        } finally {
+            scope.close();
+        }
+    }
+
+    /**
+     * Histogram of the given name, created on first use. Scopes record into the histogram
+     * named by their path; callers can record their own samples too.
+     */
+    public LatencyHistogram histogram(String name) {
+        synchronized (histograms) {
+            return histograms.computeIfAbsent(name, key -> new LatencyHistogram());
+        }
+    }
+
+    /** Snapshot of all histograms, in the order they were first used. */
+    public Map<String, LatencyHistogram> getHistograms() {
+        synchronized (histograms) {
+            return new LinkedHashMap<>(histograms);
+        }
+    }
+
+    public long getDfsVisits() { return dfsVisits.sum(); }
+    public long getEdgeRelaxations() { return edgeRelaxations.sum(); }
+    public long getQueueOperations() { return queueOperations.sum(); }
+    public long getTasksRun() { return tasksRun.sum(); }
+    public long getTaskTime() { return taskTime.sum(); }
+    public long getQueueWait() { return queueWait.sum(); }
 
     public void reset() {
-        dfsVisits = 0;
-        edgeRelaxations = 0;
-        queueOperations = 0;
+        stopwatch.remove();
+        dfsVisits.reset();
+        edgeRelaxations.reset();
+        queueOperations.reset();
+        tasksRun.reset();
+        taskTime.reset();
+        queueWait.reset();
+    }
+
+    public void clearScopes() {
+        histograms.clear();
+    }
+
+    /** One line per histogram: name and summary. */
+    public String scopeReport() {
+        StringBuilder report = new StringBuilder();
+        for (Map.Entry<String, LatencyHistogram> entry : getHistograms().entrySet()) {
+            if (report.length() > 0) {
+                report.append('\n');
+            }
+            report.append(entry.getKey()).append(": ").append(entry.getValue());
+        }
+        return report.toString();
     }
 
     @Override
     public String toString() {
+        long tasks = getTasksRun();
+        if (tasks > 0) {
+            return String.format("Metrics{time=%d ns, dfsVisits=%d, edgeRelaxations=%d, queueOperations=%d, "
+                            + "tasksRun=%d, taskTime=%d ns, queueWait=%d ns}",
+                    getElapsedTime(), getDfsVisits(), getEdgeRelaxations(), getQueueOperations(),
+                    tasks, getTaskTime(), getQueueWait());
+        }
         return String.format("Metrics{time=%d ns, dfsVisits=%d, edgeRelaxations=%d, queueOperations=%d}",
-                getElapsedTime(), dfsVisits, edgeRelaxations, queueOperations);
+                getElapsedTime(), getDfsVisits(), getEdgeRelaxations(), getQueueOperations());
+    }
+
+    /**
+     * An open timing scope. Closing it records the elapsed time and makes its parent current again.
+     */
+    public static class Scope implements AutoCloseable {
+        private final Metrics owner;
+        private final Scope parent;
+        private final String path;
+        private final long start;
+
+        Scope(Metrics owner, Scope parent, String path) {
+            this.owner = owner;
+            this.parent = parent;
+            this.path = path;
+            this.start = System.nanoTime();
+        }
+
+        public String getPath() { return path; }
+
+        @Override
+        public void close() {
+            if (owner == null) {
+                return;
+            }
+            owner.histogram(path).record(System.nanoTime() - start);
+            if (parent == null) {
+                owner.currentScope.remove();
+            } else {
+                owner.currentScope.set(parent);
+            }
+        }
+    }
+
+    /**
+     * Disabled metrics: every mutator is a no-op and scopes record nothing.
+     */
+    private static final class NoOpMetrics extends Metrics {
+        private static final Scope NO_SCOPE = new Scope(null, null, "");
+
+        @Override public void startTimer() { }
+        @Override public void stopTimer() { }
+        @Override public void incrementDfsVisits() { }
+        @Override public void incrementEdgeRelaxations() { }
+        @Override public void incrementQueueOperations() { }
+        @Override public void addDfsVisits(long count) { }
+        @Override public void addEdgeRelaxations(long count) { }
+        @Override public void addQueueOperations(long count) { }
+        @Override public void addTaskTimes(int count, long wallNanos, long waitNanos) { }
+        @Override public Scope scope(String name) { return NO_SCOPE; }
+        @Override public LatencyHistogram histogram(String name) { return LatencyHistogram.DISABLED; }
     }
 }
\ No newline at end of file
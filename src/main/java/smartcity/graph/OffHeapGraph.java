@@ -0,0 +1,278 @@
+package smartcity.graph;
+
+import smartcity.io.BinaryGraphFormat;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * CSR graph stored outside the Java heap, with long edge offsets and int targets.
+ *
+ * Offsets and targets live in chunks of 2^chunkShift elements, each a direct or memory-mapped
+ * buffer, because a single buffer is indexed by int. Element i sits at chunks[i >>> shift] at
+ * position i & mask; only the last chunk may be shorter. The heap holds just the chunk
+ * tables, so a graph with billions of edges adds nothing for the collector to trace or copy.
+ * Graphs come from the {@link Builder} (direct buffers) or from {@link #map(Path)}, which maps
+ * a BinaryGraphFormat file of any size chunk by chunk.
+ */
+public final class OffHeapGraph implements LongDirectedGraph {
+    /** 2^27 elements: 512 MiB target chunks and 1 GiB offset chunks. */
+    public static final int DEFAULT_CHUNK_SHIFT = 27;
+
+    private final int vertexCount;
+    private final long edgeCount;
+    private final LongBuffer[] offsets;
+    private final IntBuffer[] targets;
+    private final int shift;
+    private final int mask;
+
+    private OffHeapGraph(int vertexCount, long edgeCount, LongBuffer[] offsets, IntBuffer[] targets, int shift) {
+        this.vertexCount = vertexCount;
+        this.edgeCount = edgeCount;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.shift = shift;
+        this.mask = (1 << shift) - 1;
+    }
+
+    @Override public int vertexCount() { return vertexCount; }
+    @Override public long edgeCount() { return edgeCount; }
+
+    @Override
+    public long edgeStart(int v) {
+        return offsets[v >>> shift].get(v & mask);
+    }
+
+    @Override
+    public long edgeEnd(int v) {
+        int next = v + 1;
+        return offsets[next >>> shift].get(next & mask);
+    }
+
+    @Override
+    public int target(long edge) {
+        return targets[(int) (edge >>> shift)].get((int) edge & mask);
+    }
+
+    /** Copy an int-indexed graph off the heap. */
+    public static OffHeapGraph copyOf(DirectedGraph graph) {
+        Builder builder = new Builder(graph.vertexCount(), graph.edgeCount(), DEFAULT_CHUNK_SHIFT);
+        for (int v = 0; v < graph.vertexCount(); v++) {
+            for (int e = graph.edgeStart(v), end = graph.edgeEnd(v); e < end; e++) {
+                builder.addEdge(v, graph.target(e));
+            }
+        }
+        return builder.build();
+    }
+
+    public static MappedDataset map(Path path) throws IOException {
+        return map(path, DEFAULT_CHUNK_SHIFT);
+    }
+
+    /**
+     * Memory-map a BinaryGraphFormat file. Offsets and targets stay in the page cache; only the
+     * durations are copied onto the heap.
+     * @param chunkShift Log2 of the elements per mapped chunk, at most 27
+     */
+    public static MappedDataset map(Path path, int chunkShift) throws IOException {
+        checkShift(chunkShift);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(BinaryGraphFormat.HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+                // Keep reading until the header is complete or the file ends
+            }
+            if (header.hasRemaining() || header.getInt(0) != BinaryGraphFormat.MAGIC) {
+                throw new IOException("Not a binary graph file: " + path);
+            }
+            if (header.getInt(4) != BinaryGraphFormat.VERSION) {
+                throw new IOException("Unsupported binary graph version " + header.getInt(4) + ": " + path);
+            }
+            int n = header.getInt(8);
+            long m = header.getLong(16);
+            long offsetsBytes = (n + 1L) * Long.BYTES;
+            long targetsBytes = m * Integer.BYTES;
+            if (n < 0 || m < 0 || size != BinaryGraphFormat.HEADER_BYTES + offsetsBytes + targetsBytes
+                    + (long) n * Integer.BYTES) {
+                throw new IOException("Corrupt binary graph file: " + path);
+            }
+
+            long position = BinaryGraphFormat.HEADER_BYTES;
+            LongBuffer[] offsets = new LongBuffer[chunkCount(n + 1L, chunkShift)];
+            for (int c = 0; c < offsets.length; c++) {
+                long elements = chunkLength(n + 1L, c, chunkShift);
+                offsets[c] = mapChunk(channel, position, elements * Long.BYTES).asLongBuffer();
+                position += elements * Long.BYTES;
+            }
+            IntBuffer[] targets = new IntBuffer[chunkCount(m, chunkShift)];
+            for (int c = 0; c < targets.length; c++) {
+                long elements = chunkLength(m, c, chunkShift);
+                targets[c] = mapChunk(channel, position, elements * Integer.BYTES).asIntBuffer();
+                position += elements * Integer.BYTES;
+            }
+            int[] durations = new int[n];
+            for (int from = 0; from < n; ) {
+                int count = Math.min(n - from, 1 << chunkShift);
+                mapChunk(channel, position, (long) count * Integer.BYTES).asIntBuffer().get(durations, from, count);
+                position += (long) count * Integer.BYTES;
+                from += count;
+            }
+
+            String fileName = path.getFileName().toString();
+            String name = fileName.endsWith(".bin") ? fileName.substring(0, fileName.length() - 4) : fileName;
+            return new MappedDataset(name, new OffHeapGraph(n, m, offsets, targets, chunkShift), durations);
+        }
+    }
+
+    private static ByteBuffer mapChunk(FileChannel channel, long position, long bytes) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static int chunkCount(long elements, int shift) {
+        long count = (elements + (1L << shift) - 1) >>> shift;
+        if (count > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many elements: " + elements);
+        }
+        return (int) count;
+    }
+
+    private static long chunkLength(long elements, int chunk, int shift) {
+        return Math.min(1L << shift, elements - ((long) chunk << shift));
+    }
+
+    private static void checkShift(int chunkShift) {
+        // Chunks of longs must stay below the 2 GiB limit of a single buffer
+        if (chunkShift < 1 || chunkShift > DEFAULT_CHUNK_SHIFT) {
+            throw new IllegalArgumentException("Chunk shift must be in 1.." + DEFAULT_CHUNK_SHIFT + ": " + chunkShift);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("OffHeapGraph{vertices=%d, edges=%d, chunks=%d}", vertexCount, edgeCount,
+                offsets.length + targets.length);
+    }
+
+    /**
+     * A mapped dataset: the off-heap graph with its durations and name.
+     */
+    public static class MappedDataset {
+        public final String name;
+        public final OffHeapGraph graph;
+        public final int[] durations;
+
+        public MappedDataset(String name, OffHeapGraph graph, int[] durations) {
+            this.name = name;
+            this.graph = graph;
+            this.durations = durations;
+        }
+    }
+
+    /**
+     * Streams edges into direct buffers. Edges must be added grouped by source, in ascending
+     * source order, which is how generators and the binary format produce them; the offsets
+     * then follow from the sources alone. Target chunks grow by doubling up to the chunk size,
+     * so small graphs do not reserve a full chunk. All of it counts against
+     * -XX:MaxDirectMemorySize, which defaults to -Xmx; raise it when the heap is kept small.
+     */
+    public static class Builder {
+        private final int vertexCount;
+        private final int shift;
+        private final int chunkSize;
+        private final LongBuffer[] offsets;
+        private IntBuffer[] targets = new IntBuffer[0];
+        private long edgeCount;
+        private int currentSource;
+
+        public Builder(int vertexCount) {
+            this(vertexCount, 16, DEFAULT_CHUNK_SHIFT);
+        }
+
+        /**
+         * @param expectedEdges Capacity reserved up front; more edges can still be added
+         * @param chunkShift Log2 of the elements per chunk, at most 27
+         */
+        public Builder(int vertexCount, long expectedEdges, int chunkShift) {
+            if (vertexCount < 0) {
+                throw new IllegalArgumentException("Negative vertex count " + vertexCount);
+            }
+            checkShift(chunkShift);
+            this.vertexCount = vertexCount;
+            this.shift = chunkShift;
+            this.chunkSize = 1 << chunkShift;
+            this.offsets = new LongBuffer[chunkCount(vertexCount + 1L, chunkShift)];
+            for (int c = 0; c < offsets.length; c++) {
+                offsets[c] = ByteBuffer.allocateDirect((int) chunkLength(vertexCount + 1L, c, chunkShift) * Long.BYTES)
+                        .order(ByteOrder.nativeOrder()).asLongBuffer();
+            }
+            long reserve = Math.max(1, expectedEdges);
+            for (long allocated = 0; allocated < reserve; allocated += chunkSize) {
+                addChunk((int) Math.min(chunkSize, reserve - allocated));
+            }
+        }
+
+        public Builder addEdge(int u, int v) {
+            if (u < currentSource || u >= vertexCount) {
+                throw new IllegalArgumentException("Edges must be added in ascending source order, got source " + u
+                        + " after " + currentSource);
+            }
+            if (v < 0 || v >= vertexCount) {
+                throw new IllegalArgumentException("Edge target " + v + " outside 0.." + (vertexCount - 1));
+            }
+            advanceTo(u);
+            int chunk = (int) (edgeCount >>> shift);
+            int position = (int) edgeCount & (chunkSize - 1);
+            if (chunk == targets.length) {
+                addChunk(Math.min(chunkSize, Math.max(16, targets[chunk - 1].capacity())));
+            } else if (position == targets[chunk].capacity()) {
+                growChunk(chunk);
+            }
+            targets[chunk].put(position, v);
+            edgeCount++;
+            return this;
+        }
+
+        public long edgeCount() { return edgeCount; }
+
+        public OffHeapGraph build() {
+            advanceTo(vertexCount);
+            return new OffHeapGraph(vertexCount, edgeCount, offsets, targets, shift);
+        }
+
+        /** Record the edge start of every vertex up to and including v; offset 0 is already zero. */
+        private void advanceTo(int v) {
+            while (currentSource < v) {
+                currentSource++;
+                setOffset(currentSource, edgeCount);
+            }
+        }
+
+        private void setOffset(int v, long offset) {
+            offsets[v >>> shift].put(v & (chunkSize - 1), offset);
+        }
+
+        private void addChunk(int capacity) {
+            targets = Arrays.copyOf(targets, targets.length + 1);
+            targets[targets.length - 1] = allocateTargets(capacity);
+        }
+
+        private void growChunk(int chunk) {
+            IntBuffer old = targets[chunk];
+            IntBuffer grown = allocateTargets(Math.min(chunkSize, 2 * old.capacity()));
+            old.rewind();
+            grown.put(old);
+            grown.rewind();
+            targets[chunk] = grown;
+        }
+
+        private static IntBuffer allocateTargets(int capacity) {
+            return ByteBuffer.allocateDirect(capacity * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+        }
+    }
+}
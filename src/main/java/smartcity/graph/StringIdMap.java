@@ -0,0 +1,137 @@
+package smartcity.graph;
+
+import java.util.Arrays;
+
+/**
+ * Interns string task codes as dense vertex ids 0..n-1, in first-seen order.
+ *
+ * Same layout as {@link LongIdMap}: a half-full open-addressing table of dense ids over a
+ * names array. The hash of every name is kept next to it, so probing compares ints and only
+ * calls equals() on a hash match, and growing never rehashes a string.
+ */
+public final class StringIdMap {
+    private static final int EMPTY = -1;
+    private static final int MAX_TABLE = 1 << 30;
+
+    private String[] names;
+    private int[] hashes;
+    private int[] table;
+    private int mask;
+    private int size;
+
+    public StringIdMap() {
+        this(16);
+    }
+
+    public StringIdMap(int expectedSize) {
+        this.names = new String[Math.max(expectedSize, 1)];
+        this.hashes = new int[names.length];
+        int capacity = Integer.highestOneBit((int) Math.min(2L * expectedSize, MAX_TABLE / 2)) << 1;
+        this.table = new int[Math.max(capacity, 4)];
+        Arrays.fill(table, EMPTY);
+        this.mask = table.length - 1;
+    }
+
+    /**
+     * Dense id of the given code, assigning the next free one on first sight.
+     */
+    public int intern(String name) {
+        int hash = hash(name);
+        int slot = hash & mask;
+        while (true) {
+            int dense = table[slot];
+            if (dense == EMPTY) {
+                break;
+            }
+            if (hashes[dense] == hash && names[dense].equals(name)) {
+                return dense;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (size == MAX_TABLE - 1) {
+            throw new IllegalStateException("Too many distinct ids");
+        }
+        if (size == names.length) {
+            int capacity = (int) Math.min((long) size + (size >> 1) + 1, MAX_TABLE);
+            names = Arrays.copyOf(names, capacity);
+            hashes = Arrays.copyOf(hashes, capacity);
+        }
+        int dense = size++;
+        names[dense] = name;
+        hashes[dense] = hash;
+        table[slot] = dense;
+        if (2L * size > table.length && table.length < MAX_TABLE) {
+            rehash();
+        }
+        return dense;
+    }
+
+    /** Dense id of the given code, or -1 if it was never interned. */
+    public int get(String name) {
+        int hash = hash(name);
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int dense = table[slot];
+            if (dense == EMPTY || (hashes[dense] == hash && names[dense].equals(name))) {
+                return dense;
+            }
+        }
+    }
+
+    public String externalId(int dense) {
+        if (dense >= size) {
+            throw new IndexOutOfBoundsException("Dense id " + dense + " out of bounds for size " + size);
+        }
+        return names[dense];
+    }
+
+    public int size() { return size; }
+
+    /** Codes indexed by dense id. */
+    public String[] externalIds() {
+        return Arrays.copyOf(names, size);
+    }
+
+    /** Map dense ids, e.g. a topological order or critical path, back to codes. */
+    public String[] toExternal(int[] dense) {
+        String[] external = new String[dense.length];
+        for (int i = 0; i < dense.length; i++) {
+            external[i] = externalId(dense[i]);
+        }
+        return external;
+    }
+
+    /**
+     * Map a grouped partition, such as SCC members with their offsets, back to codes.
+     * Group g spans members[offsets[g]] .. members[offsets[g + 1] - 1].
+     */
+    public String[][] toExternal(int[] members, int[] offsets, int groupCount) {
+        String[][] groups = new String[groupCount][];
+        for (int g = 0; g < groupCount; g++) {
+            String[] group = new String[offsets[g + 1] - offsets[g]];
+            for (int i = 0; i < group.length; i++) {
+                group[i] = externalId(members[offsets[g] + i]);
+            }
+            groups[g] = group;
+        }
+        return groups;
+    }
+
+    private static int hash(String name) {
+        // String.hashCode is cached but clusters on short codes; scramble it before masking
+        int h = name.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private void rehash() {
+        table = new int[table.length << 1];
+        Arrays.fill(table, EMPTY);
+        mask = table.length - 1;
+        for (int dense = 0; dense < size; dense++) {
+            int slot = hashes[dense] & mask;
+            while (table[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = dense;
+        }
+    }
+}
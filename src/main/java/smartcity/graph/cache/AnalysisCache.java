@@ -0,0 +1,327 @@
+package smartcity.graph.cache;
+
+import smartcity.graph.DirectedGraph;
+import smartcity.graph.Metrics;
+import smartcity.graph.dagsp.DAGShortestPath;
+import smartcity.graph.scc.Condensation;
+import smartcity.graph.scc.TarjanSCC;
+import smartcity.graph.topo.TopologicalSort;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Content-addressed cache of graph analyses.
+ *
+ * Structural results (SCC partition, condensation, topological orders) are keyed by the
+ * GraphFingerprint of the structure alone; critical paths are keyed by that fingerprint plus
+ * the fingerprint of the durations. A repeat analysis with new durations therefore hashes the
+ * graph, finds its partition and goes straight to DAGShortestPath.
+ *
+ * Entries live in one access-ordered LinkedHashMap and the least recently used ones are
+ * evicted once their estimated size exceeds maxBytes. With a directory, structural results are
+ * also written there as &lt;fingerprint&gt;.scc files and read back on a memory miss, so they
+ * survive restarts. The directory is best effort: a file that fails validation is ignored and
+ * a failed write is logged, and neither fails the analysis. Lookups are synchronized; analyses
+ * run outside the lock, so two threads missing on the same graph may both compute it.
+ *
+ * Results are returned by reference, not copied: every caller that hits an entry, on any
+ * thread, gets the same StructuralAnalysis or CriticalPathResult. Their arrays are read-only;
+ * a caller that needs to modify one must copy it first, or it corrupts the entry for all.
+ */
+public class AnalysisCache {
+    private static final int FILE_MAGIC = 0x53434743;
+    private static final int FILE_VERSION = 1;
+
+    private final long maxBytes;
+    private final Path directory;
+    private final Metrics metrics;
+    private final LinkedHashMap<Object, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long sizeBytes;
+
+    private long hits;
+    private long diskHits;
+    private long misses;
+    private long evictions;
+
+    public AnalysisCache(long maxBytes, Metrics metrics) {
+        this(maxBytes, null, metrics);
+    }
+
+    /**
+     * @param directory Where structural results are persisted, or null for memory only
+     */
+    public AnalysisCache(long maxBytes, Path directory, Metrics metrics) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+        this.directory = directory;
+        this.metrics = metrics;
+    }
+
+    /**
+     * SCC partition, condensation and topological orders of the graph, from the cache when
+     * a structurally identical graph was analysed before.
+     */
+    public StructuralAnalysis structure(DirectedGraph graph) {
+        GraphFingerprint fingerprint = GraphFingerprint.of(graph);
+        StructuralAnalysis cached = (StructuralAnalysis) lookup(fingerprint);
+        if (cached != null) {
+            return cached;
+        }
+
+        StructuralAnalysis analysis = directory != null ? readFromDisk(graph, fingerprint) : null;
+        if (analysis != null) {
+            synchronized (this) {
+                diskHits++;
+            }
+        } else {
+            synchronized (this) {
+                misses++;
+            }
+            analysis = analyze(graph, fingerprint);
+            if (directory != null) {
+                writeToDisk(analysis);
+            }
+        }
+        store(fingerprint, analysis, analysis.estimatedBytes());
+        return analysis;
+    }
+
+    /**
+     * Critical path for the given durations: over the graph itself when it is acyclic, over
+     * its condensation otherwise (then a CondensedPathResult).
+     */
+    public DAGShortestPath.CriticalPathResult criticalPath(DirectedGraph graph, int[] durations) {
+        if (durations.length != graph.vertexCount()) {
+            throw new IllegalArgumentException("Expected " + graph.vertexCount() + " durations, got " + durations.length);
+        }
+        StructuralAnalysis structure = structure(graph);
+        PathKey key = new PathKey(structure.fingerprint, GraphFingerprint.ofDurations(durations));
+        DAGShortestPath.CriticalPathResult cached = (DAGShortestPath.CriticalPathResult) lookup(key);
+        if (cached != null) {
+            return cached;
+        }
+        synchronized (this) {
+            misses++;
+        }
+
+        DAGShortestPath shortestPath = new DAGShortestPath(metrics);
+        DAGShortestPath.CriticalPathResult result = structure.isAcyclic()
+                ? shortestPath.findCriticalPath(graph, durations, structure.vertexOrder)
+                : shortestPath.findCondensedCriticalPath(structure.condensation(durations), structure.componentOrder);
+        store(key, result, 4L * result.nodes.length + 64);
+        return result;
+    }
+
+    private StructuralAnalysis analyze(DirectedGraph graph, GraphFingerprint fingerprint) {
+        Condensation condensation = new TarjanSCC(graph, metrics).buildCondensation(null);
+        TopologicalSort topo = new TopologicalSort(metrics);
+        int[] componentOrder = topo.kahnTopologicalSort(condensation.dag);
+        int[] vertexOrder = condensation.componentCount() == graph.vertexCount()
+                ? topo.kahnTopologicalSort(graph)
+                : new int[0];
+        return new StructuralAnalysis(fingerprint, condensation, componentOrder, vertexOrder);
+    }
+
+    private synchronized Object lookup(Object key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    private synchronized void store(Object key, Object value, long bytes) {
+        Entry previous = entries.put(key, new Entry(value, bytes));
+        if (previous != null) {
+            sizeBytes -= previous.bytes;
+        }
+        sizeBytes += bytes;
+        Iterator<Entry> eldest = entries.values().iterator();
+        // Keep at least the entry just stored, even if it alone exceeds the bound
+        while (sizeBytes > maxBytes && entries.size() > 1) {
+            Entry evicted = eldest.next();
+            eldest.remove();
+            sizeBytes -= evicted.bytes;
+            evictions++;
+        }
+    }
+
+    private Path fileFor(GraphFingerprint fingerprint) {
+        return directory.resolve(fingerprint.toHex() + ".scc");
+    }
+
+    /**
+     * File layout: magic, version, vertex count, component count, component ids, then the
+     * component order and vertex order, each preceded by its length. The condensation DAG is
+     * rebuilt from the ids in O(V + E); only the SCC search and sorts are skipped.
+     * @return null if there is no usable file
+     */
+    private StructuralAnalysis readFromDisk(DirectedGraph graph, GraphFingerprint fingerprint) {
+        Path file = fileFor(fingerprint);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+                return null;
+            }
+            int n = in.readInt();
+            int componentCount = in.readInt();
+            if (n != graph.vertexCount() || componentCount < 0 || componentCount > n) {
+                return null;
+            }
+            int[] componentIds = readInts(in, n, n);
+            int[] componentOrder = readInts(in, in.readInt(), componentCount);
+            int[] vertexOrder = readInts(in, in.readInt(), n);
+            for (int id : componentIds) {
+                if (id < 0 || id >= componentCount) {
+                    return null;
+                }
+            }
+            Condensation condensation = Condensation.build(graph, componentIds, componentCount, null);
+            // The orders decide acyclicity and the critical path, so they must hold for this graph
+            if (componentOrder.length != componentCount || !isOrder(componentOrder, condensation.dag)
+                    || (vertexOrder.length > 0 && componentCount != n) || !isOrder(vertexOrder, graph)) {
+                return null;
+            }
+            return new StructuralAnalysis(fingerprint, condensation, componentOrder, vertexOrder);
+        } catch (IOException e) {
+            // Truncated or unreadable: analyse again and overwrite it
+            return null;
+        }
+    }
+
+    private void writeToDisk(StructuralAnalysis analysis) {
+        Path file = fileFor(analysis.fingerprint);
+        Path temp = null;
+        try {
+            Files.createDirectories(directory);
+            temp = Files.createTempFile(directory, analysis.fingerprint.toHex(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(FILE_MAGIC);
+                out.writeInt(FILE_VERSION);
+                out.writeInt(analysis.fingerprint.vertexCount);
+                out.writeInt(analysis.componentCount());
+                writeInts(out, analysis.condensation.componentIds);
+                out.writeInt(analysis.componentOrder.length);
+                writeInts(out, analysis.componentOrder);
+                out.writeInt(analysis.vertexOrder.length);
+                writeInts(out, analysis.vertexOrder);
+            }
+            // Readers never see a partial file
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // The result is already computed and cached in memory; only persistence is lost
+            System.err.println("Could not write cache file " + file + ": " + e);
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                    // Nothing more to clean up
+                }
+            }
+        }
+    }
+
+    /**
+     * True if order lists distinct vertices of graph and, if it lists all of them, every edge
+     * points forward in it.
+     */
+    private static boolean isOrder(int[] order, DirectedGraph graph) {
+        int n = graph.vertexCount();
+        int[] position = new int[n];
+        Arrays.fill(position, -1);
+        for (int i = 0; i < order.length; i++) {
+            int v = order[i];
+            if (v < 0 || v >= n || position[v] != -1) {
+                return false;
+            }
+            position[v] = i;
+        }
+        if (order.length == n) {
+            for (int v = 0; v < n; v++) {
+                for (int e = graph.edgeStart(v), end = graph.edgeEnd(v); e < end; e++) {
+                    if (position[graph.target(e)] <= position[v]) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /** Read count ints, refusing counts above max before allocating. */
+    private static int[] readInts(DataInputStream in, int count, int max) throws IOException {
+        if (count < 0 || count > max) {
+            throw new IOException("Length " + count + " outside 0.." + max);
+        }
+        int[] values = new int[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = in.readInt();
+        }
+        return values;
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    public synchronized long getHits() { return hits; }
+    public synchronized long getDiskHits() { return diskHits; }
+    public synchronized long getMisses() { return misses; }
+    public synchronized long getEvictions() { return evictions; }
+    public synchronized long getSizeBytes() { return sizeBytes; }
+    public synchronized int size() { return entries.size(); }
+
+    public synchronized void clear() {
+        entries.clear();
+        sizeBytes = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("AnalysisCache{entries=%d, bytes=%d, hits=%d, diskHits=%d, misses=%d, evictions=%d}",
+                entries.size(), sizeBytes, hits, diskHits, misses, evictions);
+    }
+
+    private static final class Entry {
+        final Object value;
+        final long bytes;
+
+        Entry(Object value, long bytes) {
+            this.value = value;
+            this.bytes = bytes;
+        }
+    }
+
+    /** Key of a critical path: structure and durations fingerprints together. */
+    private static final class PathKey {
+        final GraphFingerprint structure;
+        final GraphFingerprint durations;
+
+        PathKey(GraphFingerprint structure, GraphFingerprint durations) {
+            this.structure = structure;
+            this.durations = durations;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof PathKey)) return false;
+            PathKey other = (PathKey) o;
+            return structure.equals(other.structure) && durations.equals(other.durations);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * structure.hashCode() + durations.hashCode();
+        }
+    }
+}
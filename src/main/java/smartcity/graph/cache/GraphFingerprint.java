@@ -0,0 +1,95 @@
+package smartcity.graph.cache;
+
+import smartcity.graph.DirectedGraph;
+
+/**
+ * 128-bit content hash of a graph's structure or of a durations array.
+ *
+ * Two independent multiply-xor lanes run over the vertex count, every out-degree and every
+ * target in CSR order, and are finished with the MurmurHash3 mixer. Sizes are kept alongside
+ * the hash, so fingerprints of differently sized inputs never compare equal. Hashing is one
+ * sequential O(V + E) pass with no allocation.
+ */
+public final class GraphFingerprint {
+    private static final long LANE1 = 0x9E3779B97F4A7C15L;
+    private static final long LANE2 = 0xC2B2AE3D27D4EB4FL;
+
+    public final long high;
+    public final long low;
+    public final int vertexCount;
+    public final int edgeCount;
+
+    private GraphFingerprint(long high, long low, int vertexCount, int edgeCount) {
+        this.high = high;
+        this.low = low;
+        this.vertexCount = vertexCount;
+        this.edgeCount = edgeCount;
+    }
+
+    /** Fingerprint of the structure only: vertex count, adjacency order and targets. */
+    public static GraphFingerprint of(DirectedGraph graph) {
+        int n = graph.vertexCount();
+        long h1 = mix(LANE1, n, LANE1);
+        long h2 = mix(LANE2, n, LANE2);
+        for (int v = 0; v < n; v++) {
+            int start = graph.edgeStart(v);
+            int end = graph.edgeEnd(v);
+            h1 = mix(h1, end - start, LANE1);
+            h2 = mix(h2, end - start, LANE2);
+            for (int e = start; e < end; e++) {
+                int target = graph.target(e);
+                h1 = mix(h1, target, LANE1);
+                h2 = mix(h2, target, LANE2);
+            }
+        }
+        return new GraphFingerprint(finish(h1), finish(h2), n, graph.edgeCount());
+    }
+
+    /** Fingerprint of a durations array, independent of any graph. */
+    public static GraphFingerprint ofDurations(int[] durations) {
+        long h1 = mix(LANE2, durations.length, LANE1);
+        long h2 = mix(LANE1, durations.length, LANE2);
+        for (int duration : durations) {
+            h1 = mix(h1, duration, LANE1);
+            h2 = mix(h2, duration, LANE2);
+        }
+        return new GraphFingerprint(finish(h1), finish(h2), durations.length, 0);
+    }
+
+    private static long mix(long h, int value, long multiplier) {
+        return Long.rotateLeft((h ^ value) * multiplier, 29);
+    }
+
+    private static long finish(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /** 32 hex digits, used as the on-disk file name. */
+    public String toHex() {
+        return String.format("%016x%016x", high, low);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof GraphFingerprint)) return false;
+        GraphFingerprint other = (GraphFingerprint) o;
+        return high == other.high && low == other.low
+                && vertexCount == other.vertexCount && edgeCount == other.edgeCount;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (high ^ (high >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("GraphFingerprint{%s, vertices=%d, edges=%d}", toHex(), vertexCount, edgeCount);
+    }
+}
@@ -0,0 +1,58 @@
+package smartcity.graph.cache;
+
+import smartcity.graph.scc.Condensation;
+
+/**
+ * Everything about a graph that does not depend on durations: its SCC partition, the
+ * condensation DAG and topological orders of both. Instances are shared by every caller that
+ * hits the same cache entry, so the arrays here and in the condensation must not be modified.
+ */
+public class StructuralAnalysis {
+    public final GraphFingerprint fingerprint;
+    /** Condensation built without durations; see {@link #condensation(int[])}. */
+    public final Condensation condensation;
+    /** Topological order of the condensation DAG. */
+    public final int[] componentOrder;
+    /** Kahn order of the original graph; shorter than the vertex count if it has cycles. */
+    public final int[] vertexOrder;
+
+    public StructuralAnalysis(GraphFingerprint fingerprint, Condensation condensation,
+                              int[] componentOrder, int[] vertexOrder) {
+        this.fingerprint = fingerprint;
+        this.condensation = condensation;
+        this.componentOrder = componentOrder;
+        this.vertexOrder = vertexOrder;
+    }
+
+    public boolean isAcyclic() {
+        return vertexOrder.length == fingerprint.vertexCount;
+    }
+
+    public int componentCount() {
+        return condensation.componentCount();
+    }
+
+    /** The condensation with durations summed per component, without recomputing the partition. */
+    public Condensation condensation(int[] durations) {
+        return condensation.withDurations(durations, Condensation.DurationAggregate.SUM);
+    }
+
+    /** Approximate heap footprint, used for the cache's size bound. */
+    public long estimatedBytes() {
+        long ints = (long) condensation.componentIds.length
+                + condensation.componentSizes.length
+                + condensation.members.length
+                + condensation.memberOffsets.length
+                + condensation.dag.vertexCount() + 1
+                + condensation.dag.edgeCount()
+                + componentOrder.length
+                + vertexOrder.length;
+        // Plus headers of the arrays and the objects holding them
+        return 4 * ints + 16 * 12;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("StructuralAnalysis{components=%d, acyclic=%b}", componentCount(), isAcyclic());
+    }
+}
@@ -1,7 +1,18 @@
 package smartcity.graph.dagsp;
 
+import smartcity.graph.CSRGraph;
+import smartcity.graph.DirectedGraph;
+import smartcity.graph.IntList;
+import smartcity.graph.LongDirectedGraph;
+import smartcity.graph.LongIdMap;
 import smartcity.graph.Metrics;
+import smartcity.graph.StringIdMap;
+import smartcity.graph.scc.Condensation;
+import smartcity.graph.topo.ParallelTopologicalSort;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class DAGShortestPath {
     private Metrics metrics;
@@ -14,25 +25,58 @@ public class DAGShortestPath {
                                int[] nodeDurations,
                                List<Integer> topoOrder,
                                int source) {
+        return shortestPaths(CSRGraph.fromAdjacencyMap(graph), nodeDurations, toIntArray(topoOrder), source);
+    }
+
+    public int[] shortestPaths(DirectedGraph graph,
+                               int[] nodeDurations,
+                               int[] topoOrder,
+                               int source) {
+        int n = graph.vertexCount();
+        return shortestPaths(graph, nodeDurations, topoOrder, source, new int[n], null);
+    }
+
+    /**
+     * Shortest duration-weighted paths from source into caller-owned arrays, so repeated
+     * queries against the same DAG allocate nothing.
+     * @param dist Receives the distances, Integer.MAX_VALUE where unreachable; length at least n
+     * @param prev Receives the predecessor of every vertex on its shortest path, -1 for the source
+     *             and unreachable vertices; may be null. Pass it to tracePath or reconstructOptimalPath.
+     * @return dist
+     */
+    public int[] shortestPaths(DirectedGraph graph,
+                               int[] nodeDurations,
+                               int[] topoOrder,
+                               int source,
+                               int[] dist,
+                               int[] prev) {
         metrics.startTimer();
 
-        int n = graph.size();
-        int[] dist = new int[n];
-        Arrays.fill(dist, Integer.MAX_VALUE);
+        int n = graph.vertexCount();
+        Arrays.fill(dist, 0, n, Integer.MAX_VALUE);
+        if (prev != null) {
+            Arrays.fill(prev, 0, n, -1);
+        }
         dist[source] = nodeDurations[source]; // Include source node duration
 
+        // Relaxations are counted locally and reported once after the sweep
+        long relaxations = topoOrder.length;
         for (int node : topoOrder) {
-            metrics.incrementEdgeRelaxations();
             if (dist[node] != Integer.MAX_VALUE) {
-                for (int neighbor : graph.getOrDefault(node, new ArrayList<>())) {
+                for (int e = graph.edgeStart(node), end = graph.edgeEnd(node); e < end; e++) {
+                    int neighbor = graph.target(e);
                     int newDist = dist[node] + nodeDurations[neighbor];
                     if (newDist < dist[neighbor]) {
                         dist[neighbor] = newDist;
-                        metrics.incrementEdgeRelaxations();
+                        if (prev != null) {
+                            prev[neighbor] = node;
+                        }
+                        relaxations++;
                     }
                 }
             }
         }
+        metrics.addEdgeRelaxations(relaxations);
 
         metrics.stopTimer();
         return dist;
@@ -41,9 +85,15 @@ public class DAGShortestPath {
     public CriticalPathResult findCriticalPath(Map<Integer, List<Integer>> graph,
                                                int[] nodeDurations,
                                                List<Integer> topoOrder) {
+        return findCriticalPath(CSRGraph.fromAdjacencyMap(graph), nodeDurations, toIntArray(topoOrder));
+    }
+
+    public CriticalPathResult findCriticalPath(DirectedGraph graph,
+                                               int[] nodeDurations,
+                                               int[] topoOrder) {
         metrics.startTimer();
 
-        int n = graph.size();
+        int n = graph.vertexCount();
         int[] longest = new int[n];
         int[] prev = new int[n];
         Arrays.fill(prev, -1);
@@ -51,8 +101,8 @@ public class DAGShortestPath {
         System.arraycopy(nodeDurations, 0, longest, 0, n);
 
         for (int node : topoOrder) {
-            for (int neighbor : graph.getOrDefault(node, new ArrayList<>())) {
-                metrics.incrementEdgeRelaxations();
+            for (int e = graph.edgeStart(node), end = graph.edgeEnd(node); e < end; e++) {
+                int neighbor = graph.target(e);
                 int newLength = longest[node] + nodeDurations[neighbor];
                 if (newLength > longest[neighbor]) {
                     longest[neighbor] = newLength;
@@ -60,62 +110,405 @@ public class DAGShortestPath {
                 }
             }
         }
+        // Every edge is relaxed exactly once
+        metrics.addEdgeRelaxations(graph.edgeCount());
+
+        CriticalPathResult result = longestEnding(longest, prev);
+        metrics.stopTimer();
+        return result;
+    }
+
+    /**
+     * Critical path over a long-indexed graph, such as an OffHeapGraph with more than 2^31
+     * edges. Same relaxation as the DirectedGraph overload, which keeps its own int-indexed
+     * loop because a view would slow it down; both end in longestEnding. The per-vertex
+     * arrays stay on the heap.
+     */
+    public CriticalPathResult findCriticalPath(LongDirectedGraph graph, int[] nodeDurations, int[] topoOrder) {
+        metrics.startTimer();
 
+        int n = graph.vertexCount();
+        int[] longest = new int[n];
+        int[] prev = new int[n];
+        Arrays.fill(prev, -1);
+
+        System.arraycopy(nodeDurations, 0, longest, 0, n);
+
+        for (int node : topoOrder) {
+            for (long e = graph.edgeStart(node), end = graph.edgeEnd(node); e < end; e++) {
+                int neighbor = graph.target(e);
+                int newLength = longest[node] + nodeDurations[neighbor];
+                if (newLength > longest[neighbor]) {
+                    longest[neighbor] = newLength;
+                    prev[neighbor] = node;
+                }
+            }
+        }
+        // Every edge is relaxed exactly once
+        metrics.addEdgeRelaxations(graph.edgeCount());
+
+        CriticalPathResult result = longestEnding(longest, prev);
+        metrics.stopTimer();
+        return result;
+    }
+
+    /**
+     * Path to the vertex with the largest finish time, the first one on ties. Shared by the
+     * findCriticalPath overloads and findCriticalPathParallel, so they agree on ties.
+     */
+    private static CriticalPathResult longestEnding(int[] longest, int[] prev) {
         int maxDist = 0;
         int endNode = 0;
-        for (int i = 0; i < n; i++) {
+        for (int i = 0; i < longest.length; i++) {
             if (longest[i] > maxDist) {
                 maxDist = longest[i];
                 endNode = i;
             }
         }
 
-        List<Integer> criticalPath = reconstructPath(prev, endNode);
+        int[] criticalPath = longest.length == 0 ? new int[0] : tracePath(prev, endNode);
+        return new CriticalPathResult(criticalPath, maxDist);
+    }
+
+    /**
+     * Full critical path method schedule in one forward and one backward sweep.
+     * The forward sweep pushes earliest finish times to successors; the backward sweep pulls
+     * latest start times from successors in reverse topological order, so no transposed graph
+     * is needed. Every quantity lives in a primitive array indexed by task.
+     */
+    public Schedule computeSchedule(DirectedGraph graph, int[] nodeDurations, int[] topoOrder) {
+        int n = graph.vertexCount();
+        if (topoOrder.length != n) {
+            throw new IllegalArgumentException("Graph contains cycles, a schedule needs a complete topological order");
+        }
+        metrics.startTimer();
+
+        int[] earliestStart = new int[n];
+        int[] earliestFinish = new int[n];
+        int makespan = 0;
+        for (int node : topoOrder) {
+            int finish = earliestStart[node] + nodeDurations[node];
+            earliestFinish[node] = finish;
+            makespan = Math.max(makespan, finish);
+            for (int e = graph.edgeStart(node), end = graph.edgeEnd(node); e < end; e++) {
+                int neighbor = graph.target(e);
+                if (finish > earliestStart[neighbor]) {
+                    earliestStart[neighbor] = finish;
+                }
+            }
+        }
+
+        // Both sweeps touch every edge once
+        metrics.addEdgeRelaxations(2L * graph.edgeCount());
+
+        int[] latestStart = new int[n];
+        int[] latestFinish = new int[n];
+        int[] slack = new int[n];
+        int criticalCount = 0;
+        for (int i = n - 1; i >= 0; i--) {
+            int node = topoOrder[i];
+            int finish = makespan;
+            for (int e = graph.edgeStart(node), end = graph.edgeEnd(node); e < end; e++) {
+                finish = Math.min(finish, latestStart[graph.target(e)]);
+            }
+            latestFinish[node] = finish;
+            latestStart[node] = finish - nodeDurations[node];
+            slack[node] = latestStart[node] - earliestStart[node];
+            if (slack[node] == 0) {
+                criticalCount++;
+            }
+        }
+
+        int[] criticalTasks = new int[criticalCount];
+        for (int v = 0, k = 0; v < n; v++) {
+            if (slack[v] == 0) {
+                criticalTasks[k++] = v;
+            }
+        }
 
         metrics.stopTimer();
-        return new CriticalPathResult(criticalPath, maxDist);
+        return new Schedule(earliestStart, earliestFinish, latestStart, latestFinish, slack, criticalTasks, makespan);
     }
 
-    private List<Integer> reconstructPath(int[] prev, int endNode) {
-        List<Integer> path = new ArrayList<>();
-        int current = endNode;
+    /**
+     * Critical path of a graph with cycles, taken over its condensation.
+     * Every component is one super-task whose duration is the aggregate of its members
+     * (see Condensation.DurationAggregate), so the longest path runs in O(C + E') on the DAG.
+     * The component path is then expanded back to task ids, listing each component's members
+     * in ascending order.
+     * @param componentOrder Topological order of condensation.dag
+     */
+    public CondensedPathResult findCondensedCriticalPath(Condensation condensation, int[] componentOrder) {
+        if (condensation.componentDurations == null) {
+            throw new IllegalArgumentException("Condensation was built without durations");
+        }
+        CriticalPathResult componentPath =
+                findCriticalPath(condensation.dag, condensation.componentDurations, componentOrder);
 
-        while (current != -1) {
-            path.add(0, current);
-            current = prev[current];
+        int[] components = componentPath.nodes;
+        int taskCount = 0;
+        for (int component : components) {
+            taskCount += condensation.componentSizes[component];
+        }
+        int[] tasks = new int[taskCount];
+        int k = 0;
+        for (int component : components) {
+            int from = condensation.memberOffsets[component];
+            int size = condensation.componentSizes[component];
+            System.arraycopy(condensation.members, from, tasks, k, size);
+            k += size;
         }
+        return new CondensedPathResult(tasks, componentPath.length, components);
+    }
 
-        return path;
+    /**
+     * Critical path computed level by level on the fork-join common pool.
+     * Transposes the graph and derives its levels first; callers that query the same DAG
+     * repeatedly should keep those and use the overload that takes them.
+     */
+    public CriticalPathResult findCriticalPathParallel(DirectedGraph graph, int[] nodeDurations) {
+        ParallelTopologicalSort.LevelOrder levels = new ParallelTopologicalSort(Metrics.disabled()).sort(graph);
+        return findCriticalPathParallel(CSRGraph.transpose(graph), nodeDurations, levels, ForkJoinPool.commonPool());
     }
 
-    public List<Integer> reconstructOptimalPath(int[] dist, int[] prev, int target) {
-        if (dist[target] == Integer.MAX_VALUE) {
-            return new ArrayList<>(); // No path exists
+    /**
+     * Parallel critical path over topological wavefronts.
+     * Every vertex of a level pulls the best value from its predecessors, which all sit in earlier
+     * levels, so the vertices of one level are independent and no writes are shared. Ties go to the
+     * predecessor that comes first in levels.order, so the result equals
+     * findCriticalPath(graph, nodeDurations, levels.order).
+     * @param predecessors The transposed graph (see CSRGraph.transpose)
+     * @param levels Levels of the original graph from ParallelTopologicalSort
+     */
+    public CriticalPathResult findCriticalPathParallel(DirectedGraph predecessors,
+                                                       int[] nodeDurations,
+                                                       ParallelTopologicalSort.LevelOrder levels,
+                                                       ForkJoinPool pool) {
+        if (!levels.isComplete()) {
+            throw new IllegalArgumentException("Graph contains cycles, critical path needs a DAG");
         }
+        metrics.startTimer();
 
-        List<Integer> path = new ArrayList<>();
-        int current = target;
+        int n = predecessors.vertexCount();
+        int[] order = levels.order;
+        int[] position = new int[n];
+        for (int i = 0; i < n; i++) {
+            position[order[i]] = i;
+        }
 
-        while (current != -1) {
-            path.add(0, current);
-            current = prev[current];
+        int[] longest = new int[n];
+        int[] prev = new int[n];
+        AtomicLong relaxations = new AtomicLong();
+        for (int k = 0; k < levels.levelCount(); k++) {
+            PullLevel level = new PullLevel(predecessors, nodeDurations, order, position, longest, prev,
+                    relaxations, levels.levelOffsets[k], levels.levelOffsets[k + 1]);
+            if (levels.levelOffsets[k + 1] - levels.levelOffsets[k] > PullLevel.CHUNK) {
+                pool.invoke(level);
+            } else {
+                level.compute();
+            }
+        }
+
+        CriticalPathResult result = longestEnding(longest, prev);
+        metrics.stopTimer();
+        metrics.addEdgeRelaxations(relaxations.get());
+        return result;
+    }
+
+    private static final class PullLevel extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        static final int CHUNK = 512;
+
+        private final DirectedGraph predecessors;
+        private final int[] nodeDurations;
+        private final int[] order;
+        private final int[] position;
+        private final int[] longest;
+        private final int[] prev;
+        private final AtomicLong relaxations;
+        private final int from;
+        private final int to;
+
+        PullLevel(DirectedGraph predecessors, int[] nodeDurations, int[] order, int[] position,
+                  int[] longest, int[] prev, AtomicLong relaxations, int from, int to) {
+            this.predecessors = predecessors;
+            this.nodeDurations = nodeDurations;
+            this.order = order;
+            this.position = position;
+            this.longest = longest;
+            this.prev = prev;
+            this.relaxations = relaxations;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > CHUNK) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new PullLevel(predecessors, nodeDurations, order, position, longest, prev, relaxations, from, mid),
+                        new PullLevel(predecessors, nodeDurations, order, position, longest, prev, relaxations, mid, to));
+                return;
+            }
+
+            long examined = 0;
+            for (int i = from; i < to; i++) {
+                int node = order[i];
+                int best = 0;
+                int bestPred = -1;
+                for (int e = predecessors.edgeStart(node), end = predecessors.edgeEnd(node); e < end; e++) {
+                    int pred = predecessors.target(e);
+                    examined++;
+                    int candidate = longest[pred];
+                    if (candidate > best || (candidate == best && bestPred != -1 && position[pred] < position[bestPred])) {
+                        best = candidate;
+                        bestPred = pred;
+                    }
+                }
+                longest[node] = nodeDurations[node] + best;
+                prev[node] = best > 0 ? bestPred : -1;
+            }
+            relaxations.addAndGet(examined);
         }
+    }
+
+    private static int[] toIntArray(List<Integer> list) {
+        int[] array = new int[list.size()];
+        int i = 0;
+        for (int value : list) {
+            array[i++] = value;
+        }
+        return array;
+    }
 
+    /**
+     * Follow predecessor links back from target. The path is written back to front into an
+     * array of exactly its length, so even very long chains take linear time.
+     */
+    public static int[] tracePath(int[] prev, int target) {
+        int length = 0;
+        for (int current = target; current != -1; current = prev[current]) {
+            length++;
+        }
+        int[] path = new int[length];
+        tracePath(prev, target, path);
         return path;
     }
 
+    /**
+     * Allocation-free variant: write the path ending at target into buffer[0 .. length - 1].
+     * @return The path length
+     * @throws IllegalArgumentException If the buffer is too short
+     */
+    public static int tracePath(int[] prev, int target, int[] buffer) {
+        int length = 0;
+        for (int current = target; current != -1; current = prev[current]) {
+            length++;
+        }
+        if (length > buffer.length) {
+            throw new IllegalArgumentException("Path of length " + length + " does not fit a buffer of " + buffer.length);
+        }
+        int current = target;
+        for (int i = length - 1; i >= 0; i--) {
+            buffer[i] = current;
+            current = prev[current];
+        }
+        return length;
+    }
+
+    public List<Integer> reconstructOptimalPath(int[] dist, int[] prev, int target) {
+        if (dist[target] == Integer.MAX_VALUE) {
+            return new ArrayList<>(); // No path exists
+        }
+        return IntList.asList(tracePath(prev, target));
+    }
+
+    /**
+     * Critical path and its length. nodes holds the path as a primitive array; path is a
+     * read-only boxed view over the same array.
+     */
     public static class CriticalPathResult {
+        public final int[] nodes;
         public final List<Integer> path;
         public final int length;
 
-        public CriticalPathResult(List<Integer> path, int length) {
-            this.path = path;
+        public CriticalPathResult(int[] nodes, int length) {
+            this.nodes = nodes;
+            this.path = IntList.asList(nodes);
             this.length = length;
         }
 
+        public CriticalPathResult(List<Integer> path, int length) {
+            this(toIntArray(path), length);
+        }
+
+        /** The path in the external ids the graph was interned from. */
+        public long[] toExternal(LongIdMap ids) {
+            return ids.toExternal(nodes);
+        }
+
+        public String[] toExternal(StringIdMap ids) {
+            return ids.toExternal(nodes);
+        }
+
         @Override
         public String toString() {
             return String.format("CriticalPath{length=%d, path=%s}", length, path);
         }
     }
+
+    /**
+     * Critical path over a condensation: path holds task ids, componentPath the components they
+     * were expanded from.
+     */
+    public static class CondensedPathResult extends CriticalPathResult {
+        public final int[] componentNodes;
+        public final List<Integer> componentPath;
+
+        public CondensedPathResult(int[] path, int length, int[] componentPath) {
+            super(path, length);
+            this.componentNodes = componentPath;
+            this.componentPath = IntList.asList(componentPath);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("CriticalPath{length=%d, components=%s, path=%s}", length, componentPath, path);
+        }
+    }
+
+    /**
+     * Critical path method schedule. Arrays are indexed by task; criticalTasks lists every task
+     * with zero total slack in ascending order.
+     */
+    public static class Schedule {
+        public final int[] earliestStart;
+        public final int[] earliestFinish;
+        public final int[] latestStart;
+        public final int[] latestFinish;
+        public final int[] slack;
+        public final int[] criticalTasks;
+        public final int makespan;
+
+        public Schedule(int[] earliestStart, int[] earliestFinish, int[] latestStart, int[] latestFinish,
+                        int[] slack, int[] criticalTasks, int makespan) {
+            this.earliestStart = earliestStart;
+            this.earliestFinish = earliestFinish;
+            this.latestStart = latestStart;
+            this.latestFinish = latestFinish;
+            this.slack = slack;
+            this.criticalTasks = criticalTasks;
+            this.makespan = makespan;
+        }
+
+        public boolean isCritical(int task) {
+            return slack[task] == 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Schedule{makespan=%d, tasks=%d, critical=%d}",
+                    makespan, slack.length, criticalTasks.length);
+        }
+    }
 }
\ No newline at end of file
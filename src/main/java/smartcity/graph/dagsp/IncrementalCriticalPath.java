@@ -0,0 +1,215 @@
+package smartcity.graph.dagsp;
+
+import smartcity.graph.CSRGraph;
+import smartcity.graph.DirectedGraph;
+import smartcity.graph.Metrics;
+import java.util.*;
+
+/**
+ * Critical path of a DAG that is kept current while task durations change.
+ *
+ * After a duration update only the downstream cone of the task is revisited: affected vertices
+ * are processed in topological position order from a min-heap, each pulls its value from its
+ * predecessors, and propagation stops wherever a value does not change. The overall maximum is
+ * tracked in a tournament tree over the vertices, so the critical path is available without a
+ * scan. Values, predecessors and the reported path equal those of
+ * DAGShortestPath.findCriticalPath over the same topological order.
+ */
+public class IncrementalCriticalPath {
+    private final DirectedGraph graph;
+    private final DirectedGraph predecessors;
+    private final Metrics metrics;
+    private final int n;
+    private final int[] durations;
+    private final int[] position;
+    private final int[] longest;
+    private final int[] prev;
+
+    private final int[] heap;
+    private int heapSize;
+    private final boolean[] queued;
+
+    private final int leafBase;
+    private final int[] tree;
+
+    private int lastUpdateVisits;
+
+    public IncrementalCriticalPath(DirectedGraph graph, int[] nodeDurations, int[] topoOrder, Metrics metrics) {
+        this.n = graph.vertexCount();
+        if (topoOrder.length != n) {
+            throw new IllegalArgumentException("Graph contains cycles, critical path needs a complete topological order");
+        }
+        this.graph = graph;
+        this.predecessors = CSRGraph.transpose(graph);
+        this.metrics = metrics;
+        this.durations = Arrays.copyOf(nodeDurations, n);
+        this.position = new int[n];
+        for (int i = 0; i < n; i++) {
+            position[topoOrder[i]] = i;
+        }
+        this.longest = new int[n];
+        this.prev = new int[n];
+        this.heap = new int[n];
+        this.queued = new boolean[n];
+
+        int size = 1;
+        while (size < Math.max(n, 1)) {
+            size <<= 1;
+        }
+        this.leafBase = size;
+        this.tree = new int[2 * size];
+        Arrays.fill(tree, -1);
+
+        metrics.startTimer();
+        for (int node : topoOrder) {
+            recompute(node);
+        }
+        metrics.addEdgeRelaxations(predecessors.edgeCount());
+        for (int v = 0; v < n; v++) {
+            tree[leafBase + v] = v;
+        }
+        for (int i = leafBase - 1; i >= 1; i--) {
+            tree[i] = better(tree[2 * i], tree[2 * i + 1]);
+        }
+        metrics.stopTimer();
+    }
+
+    /**
+     * Change one task's duration and re-propagate through its downstream cone.
+     */
+    public void updateDuration(int v, int duration) {
+        if (durations[v] == duration) {
+            lastUpdateVisits = 0;
+            return;
+        }
+        metrics.startTimer();
+        durations[v] = duration;
+        int visits = 0;
+        long relaxations = 0;
+
+        push(v);
+        while (heapSize > 0) {
+            int w = pop();
+            visits++;
+            int oldLongest = longest[w];
+            recompute(w);
+            relaxations += predecessors.outDegree(w);
+            // A changed predecessor with an unchanged value only alters the path, not the successors
+            if (longest[w] != oldLongest) {
+                updateTree(w);
+                for (int e = graph.edgeStart(w), end = graph.edgeEnd(w); e < end; e++) {
+                    int successor = graph.target(e);
+                    if (!queued[successor]) {
+                        push(successor);
+                    }
+                }
+            }
+        }
+
+        lastUpdateVisits = visits;
+        metrics.addEdgeRelaxations(relaxations);
+        metrics.stopTimer();
+    }
+
+    /**
+     * Pull the longest path ending at node from its predecessors. Ties keep the predecessor
+     * earliest in topological order, like the sequential relaxation.
+     */
+    private void recompute(int node) {
+        int best = 0;
+        int bestPred = -1;
+        for (int e = predecessors.edgeStart(node), end = predecessors.edgeEnd(node); e < end; e++) {
+            int pred = predecessors.target(e);
+            int candidate = longest[pred];
+            if (candidate > best || (candidate == best && bestPred != -1 && position[pred] < position[bestPred])) {
+                best = candidate;
+                bestPred = pred;
+            }
+        }
+        longest[node] = durations[node] + best;
+        prev[node] = best > 0 ? bestPred : -1;
+    }
+
+    /**
+     * Current critical path. Only the path itself is walked; the maximum comes from the tree.
+     */
+    public DAGShortestPath.CriticalPathResult getCriticalPath() {
+        if (n == 0) {
+            return new DAGShortestPath.CriticalPathResult(new int[0], 0);
+        }
+        int endNode = tree[1];
+        if (longest[endNode] <= 0) {
+            endNode = 0;
+        }
+        return new DAGShortestPath.CriticalPathResult(DAGShortestPath.tracePath(prev, endNode), getCriticalPathLength());
+    }
+
+    public int getCriticalPathLength() {
+        return n == 0 ? 0 : Math.max(longest[tree[1]], 0);
+    }
+
+    /** Longest duration-weighted path ending at v, v's own duration included. */
+    public int getLongestPathTo(int v) { return longest[v]; }
+    public int getDuration(int v) { return durations[v]; }
+
+    /** Number of vertices recomputed by the most recent updateDuration call. */
+    public int getLastUpdateVisits() { return lastUpdateVisits; }
+
+    // Tournament tree: each node holds the leaf with the largest value, smallest index on ties
+
+    private int better(int a, int b) {
+        if (a == -1) return b;
+        if (b == -1) return a;
+        if (longest[a] != longest[b]) {
+            return longest[a] > longest[b] ? a : b;
+        }
+        return Math.min(a, b);
+    }
+
+    private void updateTree(int v) {
+        for (int i = (leafBase + v) >> 1; i >= 1; i >>= 1) {
+            tree[i] = better(tree[2 * i], tree[2 * i + 1]);
+        }
+    }
+
+    // Binary min-heap of vertices keyed by topological position
+
+    private void push(int v) {
+        queued[v] = true;
+        int i = heapSize++;
+        while (i > 0) {
+            int parent = (i - 1) >> 1;
+            if (position[heap[parent]] <= position[v]) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = v;
+    }
+
+    private int pop() {
+        int top = heap[0];
+        queued[top] = false;
+        int last = heap[--heapSize];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && position[heap[child + 1]] < position[heap[child]]) {
+                child++;
+            }
+            if (position[heap[child]] >= position[last]) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        if (heapSize > 0) {
+            heap[i] = last;
+        }
+        return top;
+    }
+}
@@ -0,0 +1,223 @@
+package smartcity.graph.dagsp;
+
+import smartcity.graph.DirectedGraph;
+import smartcity.graph.Metrics;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shortest duration-weighted paths from many sources over one DAG and one topological order.
+ *
+ * Sources are sorted by topological position and processed in blocks of BLOCK. The distances of
+ * a block are stored vertex-major (dist[v * BLOCK + lane]), so relaxing an edge is a short
+ * branch-free min loop over contiguous lanes that the JIT can vectorize, and the order is
+ * scanned once per block instead of once per source, starting at the block's first source.
+ * With a pool, ranges of blocks run in parallel, each reusing one block buffer.
+ *
+ * Results match DAGShortestPath.shortestPaths for every source, negative durations included,
+ * provided no distance reaches 2^30 (unreachable vertices are reported as Integer.MAX_VALUE).
+ */
+public class MultiSourceShortestPaths {
+    public static final int BLOCK = 8;
+    private static final int INF = Integer.MAX_VALUE / 2;
+
+    private final DirectedGraph graph;
+    private final int[] nodeDurations;
+    private final int[] topoOrder;
+    private final int[] position;
+    private final Metrics metrics;
+    private final ForkJoinPool pool;
+
+    public MultiSourceShortestPaths(DirectedGraph graph, int[] nodeDurations, int[] topoOrder, Metrics metrics) {
+        this(graph, nodeDurations, topoOrder, metrics, null);
+    }
+
+    /**
+     * @param pool Pool that runs blocks in parallel, or null to run them on the calling thread
+     * @throws IllegalArgumentException If the order is incomplete, or a block of BLOCK distances
+     *                                  per vertex would not fit in one array
+     */
+    public MultiSourceShortestPaths(DirectedGraph graph, int[] nodeDurations, int[] topoOrder,
+                                    Metrics metrics, ForkJoinPool pool) {
+        int n = graph.vertexCount();
+        if (topoOrder.length != n) {
+            throw new IllegalArgumentException("Graph contains cycles, shortest paths need a complete topological order");
+        }
+        long blockSize = (long) n * BLOCK;
+        if (blockSize > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException(n + " vertices need blocks of " + blockSize + " distances, more than one array holds");
+        }
+        this.graph = graph;
+        this.nodeDurations = nodeDurations;
+        this.topoOrder = topoOrder;
+        this.metrics = metrics;
+        this.pool = pool;
+        this.position = new int[n];
+        for (int i = 0; i < n; i++) {
+            position[topoOrder[i]] = i;
+        }
+    }
+
+    /**
+     * Receives the distances of one source. The array is reused after the call returns; copy it
+     * to keep it. With a pool, calls arrive concurrently from worker threads.
+     */
+    @FunctionalInterface
+    public interface SourceConsumer {
+        void accept(int sourceIndex, int source, int[] dist);
+    }
+
+    /**
+     * Distances from every source, one row per source in the order given.
+     */
+    public DistanceMatrix distances(int[] sources) {
+        int n = graph.vertexCount();
+        if ((long) sources.length * n > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException(sources.length + " x " + n + " distances do not fit one matrix, use forEach");
+        }
+        int[] data = new int[sources.length * n];
+        forEach(sources, (sourceIndex, source, dist) -> System.arraycopy(dist, 0, data, sourceIndex * n, n));
+        return new DistanceMatrix(sources.clone(), n, data);
+    }
+
+    /**
+     * Stream the distances of every source to the consumer without materializing a matrix.
+     */
+    public void forEach(int[] sources, SourceConsumer consumer) {
+        if (sources.length == 0) {
+            return;
+        }
+        metrics.startTimer();
+
+        // Visit sources by topological position so each block's scan starts as late as possible
+        long[] keys = new long[sources.length];
+        for (int i = 0; i < sources.length; i++) {
+            keys[i] = ((long) position[sources[i]] << 32) | i;
+        }
+        Arrays.sort(keys);
+        int[] byPosition = new int[sources.length];
+        for (int i = 0; i < sources.length; i++) {
+            byPosition[i] = (int) keys[i];
+        }
+
+        int blocks = (sources.length + BLOCK - 1) / BLOCK;
+        AtomicLong relaxations = new AtomicLong();
+        if (pool == null || blocks <= 1) {
+            runBlocks(sources, byPosition, 0, blocks, consumer, relaxations);
+        } else {
+            int leafBlocks = Math.max(1, blocks / (4 * pool.getParallelism()));
+            pool.invoke(new BlockRange(sources, byPosition, 0, blocks, leafBlocks, consumer, relaxations));
+        }
+
+        metrics.stopTimer();
+        metrics.addEdgeRelaxations(relaxations.get());
+    }
+
+    private void runBlocks(int[] sources, int[] byPosition, int fromBlock, int toBlock,
+                           SourceConsumer consumer, AtomicLong relaxations) {
+        int n = graph.vertexCount();
+        int[] block = new int[n * BLOCK];
+        int[] dist = new int[n];
+        long examined = 0;
+
+        for (int b = fromBlock; b < toBlock; b++) {
+            int first = b * BLOCK;
+            int lanes = Math.min(BLOCK, sources.length - first);
+            Arrays.fill(block, INF);
+            for (int lane = 0; lane < lanes; lane++) {
+                int source = sources[byPosition[first + lane]];
+                block[source * BLOCK + lane] = nodeDurations[source];
+            }
+
+            for (int i = position[sources[byPosition[first]]]; i < n; i++) {
+                int node = topoOrder[i];
+                int base = node * BLOCK;
+                for (int e = graph.edgeStart(node), end = graph.edgeEnd(node); e < end; e++) {
+                    int neighbor = graph.target(e);
+                    int weight = nodeDurations[neighbor];
+                    int target = neighbor * BLOCK;
+                    for (int lane = 0; lane < BLOCK; lane++) {
+                        // Unreached lanes stay INF, even across negative durations
+                        int d = block[base + lane];
+                        block[target + lane] = Math.min(block[target + lane], d >= INF ? INF : d + weight);
+                    }
+                    examined++;
+                }
+            }
+
+            for (int lane = 0; lane < lanes; lane++) {
+                for (int v = 0; v < n; v++) {
+                    int d = block[v * BLOCK + lane];
+                    dist[v] = d >= INF ? Integer.MAX_VALUE : d;
+                }
+                int sourceIndex = byPosition[first + lane];
+                consumer.accept(sourceIndex, sources[sourceIndex], dist);
+            }
+        }
+        relaxations.addAndGet(examined);
+    }
+
+    private final class BlockRange extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] sources;
+        private final int[] byPosition;
+        private final int from;
+        private final int to;
+        private final int leafBlocks;
+        private final SourceConsumer consumer;
+        private final AtomicLong relaxations;
+
+        BlockRange(int[] sources, int[] byPosition, int from, int to, int leafBlocks,
+                   SourceConsumer consumer, AtomicLong relaxations) {
+            this.sources = sources;
+            this.byPosition = byPosition;
+            this.from = from;
+            this.to = to;
+            this.leafBlocks = leafBlocks;
+            this.consumer = consumer;
+            this.relaxations = relaxations;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > leafBlocks) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new BlockRange(sources, byPosition, from, mid, leafBlocks, consumer, relaxations),
+                        new BlockRange(sources, byPosition, mid, to, leafBlocks, consumer, relaxations));
+                return;
+            }
+            runBlocks(sources, byPosition, from, to, consumer, relaxations);
+        }
+    }
+
+    /**
+     * Row-major distance matrix: row i holds the distances from sources[i].
+     */
+    public static class DistanceMatrix {
+        public final int[] sources;
+        public final int vertexCount;
+        public final int[] data;
+
+        public DistanceMatrix(int[] sources, int vertexCount, int[] data) {
+            this.sources = sources;
+            this.vertexCount = vertexCount;
+            this.data = data;
+        }
+
+        public int get(int sourceIndex, int vertex) {
+            return data[sourceIndex * vertexCount + vertex];
+        }
+
+        public int[] row(int sourceIndex) {
+            return Arrays.copyOfRange(data, sourceIndex * vertexCount, (sourceIndex + 1) * vertexCount);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("DistanceMatrix{sources=%d, vertices=%d}", sources.length, vertexCount);
+        }
+    }
+}
@@ -0,0 +1,544 @@
+package smartcity.graph.dynamic;
+
+import smartcity.graph.CSRGraph;
+import smartcity.graph.DirectedGraph;
+import smartcity.graph.IntList;
+import smartcity.graph.Metrics;
+import smartcity.graph.scc.SCCFinder;
+import smartcity.graph.scc.TarjanSCC;
+import java.util.*;
+
+/**
+ * Dependency graph that keeps its strongly connected components and a topological order of
+ * their condensation up to date while edges are added and removed.
+ *
+ * Insertions follow Pearce and Kelly: an edge that agrees with the current order costs O(1);
+ * otherwise only the components whose positions lie between the two endpoints are searched
+ * and reordered, and if the edge closes a cycle the components on it are merged.
+ * Removing an edge between components never invalidates anything. Removing an edge inside a
+ * component re-runs Tarjan on that component's members only; if it splits, the pieces take
+ * its place in the order (this compacts the position array, an O(components) array pass).
+ * Both reuse scratch arrays allocated once with the graph, so a deletion allocates only in
+ * proportion to the component it searches.
+ *
+ * The SCCFinder views match the batch classes: component ids are dense and numbered in
+ * reverse topological order, as TarjanSCC numbers them, and the condensation can be built
+ * with buildCondensation().
+ */
+public class DynamicDependencyGraph implements SCCFinder {
+    private final Metrics metrics;
+    private final int n;
+    private final int[][] out;
+    private final int[] outSize;
+    private final int[][] in;
+    private final int[] inSize;
+    private int edgeCount;
+
+    // Components use internal ids that stay stable between updates
+    private final int[] comp;
+    private final IntList[] members;
+    private final int[] ord;
+    private int[] compAtPos;
+    private int[] spareCompAtPos;
+    private int positionLimit;
+    private final IntList freeIds = new IntList();
+    private int liveComponents;
+
+    private final int[] forwardMark;
+    private final int[] backwardMark;
+    private int epoch;
+    private final int[] tarjanIndex;
+    private final int[] tarjanLow;
+    private final int[] edgeCursor;
+    private final int[] callStack;
+    private final int[] tarjanStack;
+    private final int[] pieces;
+    private final int[] denseIds;
+
+    private int version;
+    private int graphVersion = -1;
+    private CSRGraph graphSnapshot;
+    private int componentVersion = -1;
+    private int[] componentIds;
+    private int[] componentMembers;
+    private int[] componentOffsets;
+    private int componentCount;
+
+    public DynamicDependencyGraph(int vertexCount, Metrics metrics) {
+        this(new CSRGraph.Builder(vertexCount).build(), metrics);
+    }
+
+    /**
+     * Start from an existing graph; its components and order are computed once with TarjanSCC.
+     */
+    public DynamicDependencyGraph(DirectedGraph graph, Metrics metrics) {
+        this.metrics = metrics;
+        this.n = graph.vertexCount();
+        this.out = new int[n][];
+        this.outSize = new int[n];
+        this.in = new int[n][];
+        this.inSize = new int[n];
+
+        int[] inDegree = new int[n];
+        for (int e = 0; e < graph.edgeCount(); e++) {
+            inDegree[graph.target(e)]++;
+        }
+        for (int v = 0; v < n; v++) {
+            out[v] = new int[Math.max(graph.outDegree(v), 2)];
+            in[v] = new int[Math.max(inDegree[v], 2)];
+        }
+        for (int u = 0; u < n; u++) {
+            for (int e = graph.edgeStart(u), end = graph.edgeEnd(u); e < end; e++) {
+                int v = graph.target(e);
+                out[u][outSize[u]++] = v;
+                in[v][inSize[v]++] = u;
+            }
+        }
+        edgeCount = graph.edgeCount();
+
+        comp = new int[n];
+        members = new IntList[n];
+        ord = new int[n];
+        compAtPos = new int[n];
+        spareCompAtPos = new int[n];
+        forwardMark = new int[n];
+        backwardMark = new int[n];
+        tarjanIndex = new int[n];
+        tarjanLow = new int[n];
+        edgeCursor = new int[n];
+        callStack = new int[n];
+        tarjanStack = new int[n];
+        pieces = new int[n];
+        denseIds = new int[n];
+        Arrays.fill(tarjanIndex, -1);
+
+        // Tarjan numbers components in reverse topological order
+        TarjanSCC tarjan = new TarjanSCC(graph, metrics);
+        int k = tarjan.findComponents();
+        int[] tarjanMembers = tarjan.getComponentMembers();
+        int[] tarjanOffsets = tarjan.getComponentOffsets();
+        for (int c = 0; c < k; c++) {
+            IntList list = new IntList(tarjanOffsets[c + 1] - tarjanOffsets[c]);
+            for (int i = tarjanOffsets[c]; i < tarjanOffsets[c + 1]; i++) {
+                list.add(tarjanMembers[i]);
+                comp[tarjanMembers[i]] = c;
+            }
+            members[c] = list;
+            ord[c] = k - 1 - c;
+            compAtPos[k - 1 - c] = c;
+        }
+        for (int id = n - 1; id >= k; id--) {
+            freeIds.add(id);
+        }
+        positionLimit = k;
+        liveComponents = k;
+    }
+
+    public int vertexCount() { return n; }
+    public int edgeCount() { return edgeCount; }
+
+    public void addEdge(int u, int v) {
+        checkVertex(u);
+        checkVertex(v);
+        out[u] = append(out[u], outSize[u]++, v);
+        in[v] = append(in[v], inSize[v]++, u);
+        edgeCount++;
+        version++;
+
+        int cu = comp[u];
+        int cv = comp[v];
+        if (cu != cv && ord[cu] > ord[cv]) {
+            restoreOrder(cu, cv);
+        }
+    }
+
+    /**
+     * Remove one occurrence of the edge u -> v.
+     * @return false if the graph has no such edge
+     */
+    public boolean removeEdge(int u, int v) {
+        checkVertex(u);
+        checkVertex(v);
+        if (!removeValue(out[u], outSize[u], v)) {
+            return false;
+        }
+        outSize[u]--;
+        removeValue(in[v], inSize[v], u);
+        inSize[v]--;
+        edgeCount--;
+        version++;
+
+        if (comp[u] == comp[v]) {
+            splitComponent(comp[u]);
+        }
+        return true;
+    }
+
+    public boolean stronglyConnected(int u, int v) {
+        return comp[u] == comp[v];
+    }
+
+    /**
+     * True if u's component comes strictly before v's in the maintained topological order.
+     */
+    public boolean precedes(int u, int v) {
+        return ord[comp[u]] < ord[comp[v]];
+    }
+
+    /**
+     * Pearce-Kelly repair after inserting an edge from component x to component y with ord[x] > ord[y].
+     */
+    private void restoreOrder(int x, int y) {
+        epoch++;
+        IntList forward = search(y, ord[x], true);
+        IntList backward = search(x, ord[y], false);
+        boolean cycle = forwardMark[x] == epoch;
+
+        int[] forwardSorted = sortByOrder(forward);
+        int[] backwardSorted = sortByOrder(backward);
+
+        IntList slotList = new IntList(forwardSorted.length + backwardSorted.length);
+        for (int c : forwardSorted) {
+            slotList.add(ord[c]);
+        }
+        for (int c : backwardSorted) {
+            if (forwardMark[c] != epoch) {
+                slotList.add(ord[c]);
+            }
+        }
+        int[] slots = slotList.toArray();
+        Arrays.sort(slots);
+
+        // Components reaching x take the lowest slots and only move left; those reached from y
+        // take the highest slots and only move right. A merged cycle goes right after the former,
+        // and the slots it frees become holes.
+        IntList lower = new IntList(slots.length);
+        IntList cycleComponents = new IntList();
+        for (int c : backwardSorted) {
+            if (forwardMark[c] == epoch) {
+                cycleComponents.add(c);
+            } else {
+                lower.add(c);
+            }
+        }
+        if (cycle) {
+            lower.add(merge(cycleComponents));
+        }
+        IntList upper = new IntList(forwardSorted.length);
+        for (int c : forwardSorted) {
+            if (backwardMark[c] != epoch) {
+                upper.add(c);
+            }
+        }
+
+        int firstUpper = slots.length - upper.size();
+        for (int i = 0; i < slots.length; i++) {
+            int c = -1;
+            if (i < lower.size()) {
+                c = lower.get(i);
+            } else if (i >= firstUpper) {
+                c = upper.get(i - firstUpper);
+            }
+            if (c != -1) {
+                ord[c] = slots[i];
+            }
+            compAtPos[slots[i]] = c;
+        }
+    }
+
+    /**
+     * Depth-first search over components from start, staying within the affected order window.
+     */
+    private IntList search(int start, int bound, boolean forward) {
+        int[] mark = forward ? forwardMark : backwardMark;
+        int[][] adjacency = forward ? out : in;
+        int[] sizes = forward ? outSize : inSize;
+
+        IntList visited = new IntList();
+        IntList stack = new IntList();
+        mark[start] = epoch;
+        visited.add(start);
+        stack.add(start);
+
+        while (!stack.isEmpty()) {
+            int c = stack.removeLast();
+            IntList list = members[c];
+            for (int i = 0; i < list.size(); i++) {
+                int m = list.get(i);
+                int[] edges = adjacency[m];
+                for (int j = 0, size = sizes[m]; j < size; j++) {
+                    int w = comp[edges[j]];
+                    if (mark[w] == epoch) {
+                        continue;
+                    }
+                    if (forward ? ord[w] <= bound : ord[w] >= bound) {
+                        mark[w] = epoch;
+                        visited.add(w);
+                        stack.add(w);
+                    }
+                }
+            }
+        }
+        // Every visited component is popped exactly once
+        metrics.addDfsVisits(visited.size());
+        return visited;
+    }
+
+    private int[] sortByOrder(IntList components) {
+        long[] keys = new long[components.size()];
+        for (int i = 0; i < keys.length; i++) {
+            int c = components.get(i);
+            keys[i] = ((long) ord[c] << 32) | c;
+        }
+        Arrays.sort(keys);
+        int[] sorted = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            sorted[i] = (int) keys[i];
+        }
+        return sorted;
+    }
+
+    /**
+     * Merge components into the largest one; the others' ids are released.
+     */
+    private int merge(IntList components) {
+        int survivor = components.get(0);
+        for (int i = 1; i < components.size(); i++) {
+            if (members[components.get(i)].size() > members[survivor].size()) {
+                survivor = components.get(i);
+            }
+        }
+        IntList target = members[survivor];
+        for (int i = 0; i < components.size(); i++) {
+            int c = components.get(i);
+            if (c == survivor) {
+                continue;
+            }
+            IntList source = members[c];
+            for (int j = 0; j < source.size(); j++) {
+                int m = source.get(j);
+                comp[m] = survivor;
+                target.add(m);
+            }
+            members[c] = null;
+            freeIds.add(c);
+            liveComponents--;
+        }
+        return survivor;
+    }
+
+    /**
+     * Re-run Tarjan inside one component after an internal edge was removed.
+     */
+    private void splitComponent(int c) {
+        IntList vertices = members[c];
+        IntList pieceOffsets = new IntList();
+        pieceOffsets.add(0);
+        int stackSize = 0;
+        int pieceSize = 0;
+        int index = 0;
+
+        for (int r = 0; r < vertices.size(); r++) {
+            int root = vertices.get(r);
+            if (tarjanIndex[root] != -1) {
+                continue;
+            }
+            int depth = 0;
+            tarjanIndex[root] = tarjanLow[root] = index++;
+            edgeCursor[root] = 0;
+            tarjanStack[stackSize++] = root;
+            callStack[depth++] = root;
+
+            while (depth > 0) {
+                int v = callStack[depth - 1];
+                if (edgeCursor[v] < outSize[v]) {
+                    int w = out[v][edgeCursor[v]++];
+                    if (comp[w] != c) {
+                        continue;
+                    }
+                    if (tarjanIndex[w] == -1) {
+                        tarjanIndex[w] = tarjanLow[w] = index++;
+                        edgeCursor[w] = 0;
+                        tarjanStack[stackSize++] = w;
+                        callStack[depth++] = w;
+                    } else if (tarjanLow[w] != Integer.MAX_VALUE) {
+                        tarjanLow[v] = Math.min(tarjanLow[v], tarjanIndex[w]);
+                    }
+                    continue;
+                }
+
+                depth--;
+                if (tarjanLow[v] == tarjanIndex[v]) {
+                    int w;
+                    do {
+                        w = tarjanStack[--stackSize];
+                        tarjanLow[w] = Integer.MAX_VALUE; // Completed: no longer on the stack
+                        pieces[pieceSize++] = w;
+                    } while (w != v);
+                    pieceOffsets.add(pieceSize);
+                }
+                if (depth > 0) {
+                    int parent = callStack[depth - 1];
+                    tarjanLow[parent] = Math.min(tarjanLow[parent], tarjanLow[v]);
+                }
+            }
+        }
+        long visits = 0;
+        for (int r = 0; r < vertices.size(); r++) {
+            int v = vertices.get(r);
+            tarjanIndex[v] = -1;
+            visits += outSize[v];
+        }
+        metrics.addDfsVisits(visits);
+
+        int pieceCount = pieceOffsets.size() - 1;
+        if (pieceCount == 1) {
+            return;
+        }
+
+        // Pieces complete in reverse topological order; the first in topological order keeps id c
+        int[] pieceIds = new int[pieceCount];
+        for (int p = pieceCount - 1; p >= 0; p--) {
+            int id = p == pieceCount - 1 ? c : freeIds.removeLast();
+            pieceIds[p] = id;
+            IntList list = new IntList(pieceOffsets.get(p + 1) - pieceOffsets.get(p));
+            for (int i = pieceOffsets.get(p); i < pieceOffsets.get(p + 1); i++) {
+                list.add(pieces[i]);
+                comp[pieces[i]] = id;
+            }
+            members[id] = list;
+        }
+        liveComponents += pieceCount - 1;
+
+        // Compact into the spare position array and swap; positions never exceed n
+        int[] compacted = spareCompAtPos;
+        int p = 0;
+        for (int pos = 0; pos < positionLimit; pos++) {
+            int id = compAtPos[pos];
+            if (id == -1) {
+                continue;
+            }
+            if (id == c) {
+                for (int i = pieceCount - 1; i >= 0; i--) {
+                    ord[pieceIds[i]] = p;
+                    compacted[p++] = pieceIds[i];
+                }
+            } else {
+                ord[id] = p;
+                compacted[p++] = id;
+            }
+        }
+        spareCompAtPos = compAtPos;
+        compAtPos = compacted;
+        positionLimit = p;
+    }
+
+    // SCCFinder views, rebuilt lazily after updates
+
+    @Override
+    public DirectedGraph getGraph() {
+        if (graphVersion != version) {
+            CSRGraph.Builder builder = new CSRGraph.Builder(n, edgeCount);
+            for (int u = 0; u < n; u++) {
+                for (int i = 0; i < outSize[u]; i++) {
+                    builder.addEdge(u, out[u][i]);
+                }
+            }
+            graphSnapshot = builder.build();
+            graphVersion = version;
+        }
+        return graphSnapshot;
+    }
+
+    @Override
+    public int findComponents() {
+        if (componentVersion == version) {
+            return componentCount;
+        }
+        int k = liveComponents;
+        int[] dense = denseIds;
+        int rank = 0;
+        for (int pos = 0; pos < positionLimit; pos++) {
+            int id = compAtPos[pos];
+            if (id != -1) {
+                dense[id] = k - 1 - rank++;
+            }
+        }
+
+        componentIds = new int[n];
+        componentOffsets = new int[k + 1];
+        for (int v = 0; v < n; v++) {
+            componentIds[v] = dense[comp[v]];
+            componentOffsets[componentIds[v] + 1]++;
+        }
+        for (int c = 0; c < k; c++) {
+            componentOffsets[c + 1] += componentOffsets[c];
+        }
+        int[] cursor = Arrays.copyOf(componentOffsets, k);
+        componentMembers = new int[n];
+        for (int v = 0; v < n; v++) {
+            componentMembers[cursor[componentIds[v]]++] = v;
+        }
+        componentCount = k;
+        componentVersion = version;
+        return k;
+    }
+
+    /** Dense component ids in topological order of the condensation. */
+    public int[] componentOrder() {
+        int k = findComponents();
+        int[] order = new int[k];
+        for (int i = 0; i < k; i++) {
+            order[i] = k - 1 - i;
+        }
+        return order;
+    }
+
+    /** All vertices, grouped by component, components in topological order (as TopologicalSort.deriveTaskOrder). */
+    public int[] taskOrder() {
+        int k = findComponents();
+        int[] order = new int[n];
+        int pos = 0;
+        for (int c = k - 1; c >= 0; c--) {
+            for (int i = componentOffsets[c]; i < componentOffsets[c + 1]; i++) {
+                order[pos++] = componentMembers[i];
+            }
+        }
+        return order;
+    }
+
+    @Override public int[] getComponentIds() { findComponents(); return componentIds; }
+    @Override public int[] getComponentMembers() { findComponents(); return componentMembers; }
+    @Override public int[] getComponentOffsets() { findComponents(); return componentOffsets; }
+    @Override public int getComponentCount() { return liveComponents; }
+
+    private void checkVertex(int v) {
+        if (v < 0 || v >= n) {
+            throw new IndexOutOfBoundsException("Vertex " + v + " outside 0.." + (n - 1));
+        }
+    }
+
+    private static int[] append(int[] values, int size, int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size + (size >> 1) + 1);
+        }
+        values[size] = value;
+        return values;
+    }
+
+    private static boolean removeValue(int[] values, int size, int value) {
+        for (int i = 0; i < size; i++) {
+            if (values[i] == value) {
+                values[i] = values[size - 1];
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("DynamicDependencyGraph{vertices=%d, edges=%d, components=%d}",
+                n, edgeCount, liveComponents);
+    }
+}
@@ -0,0 +1,279 @@
+package smartcity.graph.reach;
+
+import smartcity.graph.DirectedGraph;
+import smartcity.graph.Metrics;
+import smartcity.graph.scc.Condensation;
+import smartcity.graph.scc.TarjanSCC;
+import smartcity.graph.topo.TopologicalSort;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Answers "does task u (transitively) reach task v?" without a traversal per query.
+ *
+ * Queries are mapped to the condensation DAG; tasks in the same component always reach each
+ * other. Small condensations (up to closureLimit components) get the full transitive closure as
+ * one bitset row per component, built in reverse topological order, and every query is a
+ * single bit test. Larger ones get GRAIL labels: several randomized DFS traversals each assign
+ * an interval [low, rank] to every component, and u can only reach v if u's intervals contain
+ * v's and u comes before v in topological order. Most negative queries are settled by those
+ * checks alone; the rest fall back to a DFS that only enters components still able to reach v.
+ * The GRAIL index takes O(k * C) memory for k traversals and C components.
+ *
+ * Queries share scratch buffers, so one index must not be queried from several threads at once.
+ */
+public class ReachabilityIndex {
+    public static final int DEFAULT_CLOSURE_LIMIT = 1 << 13;
+    public static final int DEFAULT_TRAVERSALS = 4;
+
+    private final Metrics metrics;
+    private final int[] componentIds;
+    private final DirectedGraph dag;
+    private final int componentCount;
+    private final int[] position;
+
+    // Bitset closure: row c spans closure[c * words] .. closure[(c + 1) * words - 1]
+    private final long[] closure;
+    private final int words;
+
+    // GRAIL labels: interval t of component c is [low[t * C + c], rank[t * C + c]]
+    private final int traversals;
+    private final int[] low;
+    private final int[] rank;
+    private final int[] stamp;
+    private final int[] stack;
+    private int queryStamp;
+
+    public ReachabilityIndex(DirectedGraph graph, Metrics metrics) {
+        this(buildCondensation(graph, metrics), metrics);
+    }
+
+    private ReachabilityIndex(Condensation condensation, Metrics metrics) {
+        this(condensation, new TopologicalSort(metrics).kahnTopologicalSort(condensation.dag), metrics,
+                DEFAULT_CLOSURE_LIMIT, DEFAULT_TRAVERSALS, 42);
+    }
+
+    public ReachabilityIndex(Condensation condensation, int[] componentOrder, Metrics metrics) {
+        this(condensation, componentOrder, metrics, DEFAULT_CLOSURE_LIMIT, DEFAULT_TRAVERSALS, 42);
+    }
+
+    /**
+     * @param componentOrder Topological order of condensation.dag
+     * @param closureLimit Largest component count that gets a full bitset closure
+     * @param traversals Number of GRAIL labelings for larger condensations
+     * @param seed Seed for the randomized traversal orders
+     */
+    public ReachabilityIndex(Condensation condensation, int[] componentOrder, Metrics metrics,
+                             int closureLimit, int traversals, long seed) {
+        this.metrics = metrics;
+        this.componentIds = condensation.componentIds;
+        this.dag = condensation.dag;
+        this.componentCount = condensation.componentCount();
+        if (componentOrder.length != componentCount) {
+            throw new IllegalArgumentException("Component order is not a complete topological order");
+        }
+
+        metrics.startTimer();
+        int c = componentCount;
+        this.position = new int[c];
+        for (int i = 0; i < c; i++) {
+            position[componentOrder[i]] = i;
+        }
+
+        if (c <= closureLimit) {
+            this.words = (c + 63) >>> 6;
+            this.closure = buildClosure(componentOrder);
+            this.traversals = 0;
+            this.low = null;
+            this.rank = null;
+            this.stamp = null;
+            this.stack = null;
+        } else {
+            this.words = 0;
+            this.closure = null;
+            this.traversals = Math.max(1, traversals);
+            this.low = new int[this.traversals * c];
+            this.rank = new int[this.traversals * c];
+            this.stamp = new int[c];
+            this.stack = new int[c];
+            SplittableRandom random = new SplittableRandom(seed);
+            for (int t = 0; t < this.traversals; t++) {
+                label(t, random);
+            }
+            // Every traversal scans each DAG edge once
+            metrics.addDfsVisits((long) this.traversals * dag.edgeCount());
+        }
+        metrics.stopTimer();
+    }
+
+    private static Condensation buildCondensation(DirectedGraph graph, Metrics metrics) {
+        return new TarjanSCC(graph, metrics).buildCondensation(null);
+    }
+
+    private long[] buildClosure(int[] componentOrder) {
+        long[] rows = new long[componentCount * words];
+        for (int i = componentCount - 1; i >= 0; i--) {
+            int c = componentOrder[i];
+            int row = c * words;
+            rows[row + (c >>> 6)] |= 1L << c;
+            for (int e = dag.edgeStart(c), end = dag.edgeEnd(c); e < end; e++) {
+                int successor = dag.target(e) * words;
+                for (int w = 0; w < words; w++) {
+                    rows[row + w] |= rows[successor + w];
+                }
+            }
+        }
+        metrics.addEdgeRelaxations(dag.edgeCount());
+        return rows;
+    }
+
+    /**
+     * One randomized post-order traversal of the whole DAG. Roots are taken in a random order
+     * and every component starts its child scan at a random offset.
+     */
+    private void label(int t, SplittableRandom random) {
+        int c = componentCount;
+        int base = t * c;
+        int[] roots = new int[c];
+        for (int i = 0; i < c; i++) {
+            roots[i] = i;
+        }
+        for (int i = c - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = roots[i];
+            roots[i] = roots[j];
+            roots[j] = tmp;
+        }
+
+        int[] shift = new int[c];
+        int[] scanned = new int[c];
+        boolean[] visited = new boolean[c];
+        int counter = 0;
+        for (int root : roots) {
+            if (visited[root]) {
+                continue;
+            }
+            int depth = 0;
+            stack[depth++] = root;
+            visited[root] = true;
+            enter(root, base, random, shift, scanned);
+            while (depth > 0) {
+                int u = stack[depth - 1];
+                int degree = dag.outDegree(u);
+                if (scanned[u] < degree) {
+                    int e = dag.edgeStart(u) + (shift[u] + scanned[u]++) % degree;
+                    int w = dag.target(e);
+                    if (!visited[w]) {
+                        visited[w] = true;
+                        enter(w, base, random, shift, scanned);
+                        stack[depth++] = w;
+                    } else {
+                        low[base + u] = Math.min(low[base + u], low[base + w]);
+                    }
+                } else {
+                    depth--;
+                    rank[base + u] = counter++;
+                    low[base + u] = Math.min(low[base + u], rank[base + u]);
+                    if (depth > 0) {
+                        int parent = stack[depth - 1];
+                        low[base + parent] = Math.min(low[base + parent], low[base + u]);
+                    }
+                }
+            }
+        }
+    }
+
+    private void enter(int u, int base, SplittableRandom random, int[] shift, int[] scanned) {
+        int degree = dag.outDegree(u);
+        shift[u] = degree > 1 ? random.nextInt(degree) : 0;
+        scanned[u] = 0;
+        low[base + u] = Integer.MAX_VALUE;
+    }
+
+    /** True if task u transitively reaches task v; every task reaches itself. */
+    public boolean reaches(int u, int v) {
+        return componentReaches(componentIds[u], componentIds[v]);
+    }
+
+    /**
+     * Bulk form of reaches: out[i] = reaches(from[i], to[i]).
+     */
+    public boolean[] reaches(int[] from, int[] to, boolean[] out) {
+        if (from.length != to.length || out.length < from.length) {
+            throw new IllegalArgumentException("Query arrays differ in length");
+        }
+        for (int i = 0; i < from.length; i++) {
+            out[i] = componentReaches(componentIds[from[i]], componentIds[to[i]]);
+        }
+        return out;
+    }
+
+    public boolean[] reaches(int[] from, int[] to) {
+        return reaches(from, to, new boolean[from.length]);
+    }
+
+    /**
+     * Reachability between condensation components.
+     */
+    public boolean componentReaches(int cu, int cv) {
+        if (cu == cv) {
+            return true;
+        }
+        if (position[cu] > position[cv]) {
+            return false;
+        }
+        if (closure != null) {
+            return (closure[cu * words + (cv >>> 6)] & (1L << cv)) != 0;
+        }
+        if (!mayReach(cu, cv)) {
+            return false;
+        }
+        return search(cu, cv);
+    }
+
+    private boolean mayReach(int cu, int cv) {
+        for (int t = 0, base = 0; t < traversals; t++, base += componentCount) {
+            if (low[base + cu] > low[base + cv] || rank[base + cv] > rank[base + cu]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** DFS from cu that skips every component whose labels rule out reaching cv. */
+    private boolean search(int cu, int cv) {
+        if (++queryStamp == 0) {
+            Arrays.fill(stamp, 0);
+            queryStamp = 1;
+        }
+        int limit = position[cv];
+        int depth = 0;
+        stack[depth++] = cu;
+        stamp[cu] = queryStamp;
+        while (depth > 0) {
+            int u = stack[--depth];
+            for (int e = dag.edgeStart(u), end = dag.edgeEnd(u); e < end; e++) {
+                int w = dag.target(e);
+                if (w == cv) {
+                    return true;
+                }
+                if (stamp[w] != queryStamp && position[w] < limit && mayReach(w, cv)) {
+                    stamp[w] = queryStamp;
+                    stack[depth++] = w;
+                }
+            }
+        }
+        return false;
+    }
+
+    public int getComponentCount() { return componentCount; }
+
+    /** True if queries are answered from the full bitset closure rather than GRAIL labels. */
+    public boolean usesClosure() { return closure != null; }
+
+    @Override
+    public String toString() {
+        return String.format("ReachabilityIndex{components=%d, mode=%s}", componentCount,
+                usesClosure() ? "closure" : "grail x" + traversals);
+    }
+}
@@ -0,0 +1,142 @@
+package smartcity.graph.scc;
+
+import smartcity.graph.CSRGraph;
+import smartcity.graph.DirectedGraph;
+import smartcity.graph.IntList;
+import java.util.Arrays;
+
+/**
+ * Condensation DAG of a graph: one vertex per strongly connected component and one edge
+ * per distinct pair of adjacent components.
+ *
+ * Built in a single O(V + E) pass over already computed component ids. Duplicate edges are
+ * dropped with a per-source stamp array instead of list lookups, and the successors of every
+ * component appear in the order the original map-based construction produced them.
+ */
+public class Condensation {
+    /**
+     * How the durations of a component's members combine into the duration of its super-node.
+     */
+    public enum DurationAggregate {
+        /** Members run one after another. */
+        SUM {
+            @Override int combine(int total, int duration) { return total + duration; }
+        },
+        /** Members run side by side; the longest one dominates. */
+        MAX {
+            @Override int combine(int total, int duration) { return Math.max(total, duration); }
+        };
+
+        abstract int combine(int total, int duration);
+    }
+
+    public final CSRGraph dag;
+    public final int[] componentIds;
+    public final int[] componentSizes;
+    /** Aggregated member durations per component, or null when built without durations. */
+    public final int[] componentDurations;
+    /** Members of component c, ascending: members[memberOffsets[c]] .. members[memberOffsets[c + 1] - 1]. */
+    public final int[] members;
+    public final int[] memberOffsets;
+
+    private Condensation(CSRGraph dag, int[] componentIds, int[] componentSizes, int[] componentDurations,
+                         int[] members, int[] memberOffsets) {
+        this.dag = dag;
+        this.componentIds = componentIds;
+        this.componentSizes = componentSizes;
+        this.componentDurations = componentDurations;
+        this.members = members;
+        this.memberOffsets = memberOffsets;
+    }
+
+    /**
+     * Condense using the components the finder has computed, running it first if needed.
+     * @param durations Per-vertex durations to sum per component, or null
+     */
+    public static Condensation build(SCCFinder finder, int[] durations) {
+        return build(finder, durations, DurationAggregate.SUM);
+    }
+
+    public static Condensation build(SCCFinder finder, int[] durations, DurationAggregate aggregate) {
+        if (finder.getComponentIds() == null) {
+            finder.findComponents();
+        }
+        return build(finder.getGraph(), finder.getComponentIds(), finder.getComponentCount(), durations, aggregate);
+    }
+
+    public static Condensation build(DirectedGraph graph, int[] componentIds, int componentCount, int[] durations) {
+        return build(graph, componentIds, componentCount, durations, DurationAggregate.SUM);
+    }
+
+    public static Condensation build(DirectedGraph graph, int[] componentIds, int componentCount,
+                                     int[] durations, DurationAggregate aggregate) {
+        int n = graph.vertexCount();
+        int[] sizes = new int[componentCount];
+        for (int v = 0; v < n; v++) {
+            sizes[componentIds[v]]++;
+        }
+
+        // Members of each component in ascending vertex order
+        int[] start = new int[componentCount + 1];
+        for (int c = 0; c < componentCount; c++) {
+            start[c + 1] = start[c] + sizes[c];
+        }
+        int[] members = new int[n];
+        int[] cursor = new int[componentCount];
+        System.arraycopy(start, 0, cursor, 0, componentCount);
+        for (int v = 0; v < n; v++) {
+            members[cursor[componentIds[v]]++] = v;
+        }
+
+        int[] aggregated = durations != null ? new int[componentCount] : null;
+        // The cursors are spent; reuse them as "last source component that added this target"
+        int[] stamp = cursor;
+        Arrays.fill(stamp, -1);
+        int[] offsets = new int[componentCount + 1];
+        IntList targets = new IntList(Math.max(16, graph.edgeCount() / 4));
+
+        for (int c = 0; c < componentCount; c++) {
+            for (int i = start[c]; i < start[c + 1]; i++) {
+                int v = members[i];
+                if (aggregated != null) {
+                    aggregated[c] = i == start[c] ? durations[v] : aggregate.combine(aggregated[c], durations[v]);
+                }
+                for (int e = graph.edgeStart(v), end = graph.edgeEnd(v); e < end; e++) {
+                    int to = componentIds[graph.target(e)];
+                    if (to != c && stamp[to] != c) {
+                        stamp[to] = c;
+                        targets.add(to);
+                    }
+                }
+            }
+            offsets[c + 1] = targets.size();
+        }
+
+        return new Condensation(CSRGraph.of(offsets, targets.toArray()), componentIds, sizes, aggregated, members, start);
+    }
+
+    /**
+     * The same condensation with new per-vertex durations, aggregated in O(V). The DAG and
+     * member arrays are shared, so a cached partition can be reused when only durations change.
+     */
+    public Condensation withDurations(int[] durations, DurationAggregate aggregate) {
+        int componentCount = componentCount();
+        int[] aggregated = new int[componentCount];
+        for (int c = 0; c < componentCount; c++) {
+            for (int i = memberOffsets[c]; i < memberOffsets[c + 1]; i++) {
+                int duration = durations[members[i]];
+                aggregated[c] = i == memberOffsets[c] ? duration : aggregate.combine(aggregated[c], duration);
+            }
+        }
+        return new Condensation(dag, componentIds, componentSizes, aggregated, members, memberOffsets);
+    }
+
+    public int componentCount() {
+        return componentSizes.length;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Condensation{components=%d, edges=%d}", dag.vertexCount(), dag.edgeCount());
+    }
+}
@@ -0,0 +1,163 @@
+package smartcity.graph.scc;
+
+import smartcity.graph.LongDirectedGraph;
+import smartcity.graph.Metrics;
+import smartcity.graph.OffHeapGraph;
+import java.util.*;
+
+/**
+ * Tarjan's algorithm over a {@link LongDirectedGraph}, for graphs with more than 2^31 edges.
+ *
+ * The same iterative DFS as TarjanSCC, with the edge cursors widened to long. Every other
+ * array is indexed by vertex, so the heap cost stays O(V) however many edges the (typically
+ * off-heap) graph has. Components are numbered in completion order, a reverse topological
+ * order of the condensation.
+ */
+public class LongTarjanSCC {
+    private final LongDirectedGraph graph;
+    private final Metrics metrics;
+    private int index;
+    private int[] indices;
+    private int[] lowLinks;
+    private long[] edgeCursor;
+    private int[] callStack;
+    private int[] stack;
+    private int stackSize;
+    private int[] componentOf;
+    private int[] componentMembers;
+    private int[] componentOffsets;
+    private int componentCount;
+
+    public LongTarjanSCC(LongDirectedGraph graph, Metrics metrics) {
+        this.graph = graph;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return Number of strongly connected components
+     */
+    public int findComponents() {
+        int n = graph.vertexCount();
+        indices = new int[n];
+        lowLinks = new int[n];
+        edgeCursor = new long[n];
+        callStack = new int[n];
+        stack = new int[n];
+        stackSize = 0;
+        componentOf = new int[n];
+        componentMembers = new int[n];
+        componentOffsets = new int[n + 1];
+        componentCount = 0;
+        index = 0;
+
+        Arrays.fill(indices, -1);
+        Arrays.fill(componentOf, -1);
+
+        metrics.startTimer();
+        for (int i = 0; i < n; i++) {
+            if (indices[i] == -1) {
+                strongConnect(i);
+            }
+        }
+        metrics.addDfsVisits(n + graph.edgeCount());
+        metrics.stopTimer();
+
+        edgeCursor = null;
+        callStack = null;
+        stack = null;
+        return componentCount;
+    }
+
+    private void strongConnect(int root) {
+        int depth = 0;
+        visit(root);
+        callStack[depth++] = root;
+
+        while (depth > 0) {
+            int v = callStack[depth - 1];
+            long e = edgeCursor[v];
+
+            if (e < graph.edgeEnd(v)) {
+                edgeCursor[v] = e + 1;
+                int neighbor = graph.target(e);
+                if (indices[neighbor] == -1) {
+                    visit(neighbor);
+                    callStack[depth++] = neighbor;
+                } else if (componentOf[neighbor] == -1) {
+                    lowLinks[v] = Math.min(lowLinks[v], indices[neighbor]);
+                }
+                continue;
+            }
+
+            depth--;
+            if (lowLinks[v] == indices[v]) {
+                int w;
+                int pos = componentOffsets[componentCount];
+                do {
+                    w = stack[--stackSize];
+                    componentOf[w] = componentCount;
+                    componentMembers[pos++] = w;
+                } while (w != v);
+                componentOffsets[++componentCount] = pos;
+            }
+            if (depth > 0) {
+                int parent = callStack[depth - 1];
+                lowLinks[parent] = Math.min(lowLinks[parent], lowLinks[v]);
+            }
+        }
+    }
+
+    private void visit(int v) {
+        indices[v] = index;
+        lowLinks[v] = index;
+        index++;
+        edgeCursor[v] = graph.edgeStart(v);
+        stack[stackSize++] = v;
+    }
+
+    /**
+     * Condensation DAG, also off the heap: one vertex per component and one edge per distinct
+     * pair of adjacent components, deduplicated with a per-source stamp like Condensation.
+     */
+    public OffHeapGraph buildCondensationDag() {
+        if (componentOf == null) {
+            findComponents();
+        }
+        int[] stamp = new int[componentCount];
+        Arrays.fill(stamp, -1);
+        // The builder grows by doubling; the DAG often has far fewer edges than the graph
+        OffHeapGraph.Builder builder = new OffHeapGraph.Builder(componentCount);
+        for (int c = 0; c < componentCount; c++) {
+            for (int i = componentOffsets[c]; i < componentOffsets[c + 1]; i++) {
+                int v = componentMembers[i];
+                for (long e = graph.edgeStart(v), end = graph.edgeEnd(v); e < end; e++) {
+                    int to = componentOf[graph.target(e)];
+                    if (to != c && stamp[to] != c) {
+                        stamp[to] = c;
+                        builder.addEdge(c, to);
+                    }
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    /** Member durations summed per component. */
+    public int[] componentDurations(int[] durations) {
+        if (componentOf == null) {
+            findComponents();
+        }
+        int[] sums = new int[componentCount];
+        for (int v = 0; v < componentOf.length; v++) {
+            sums[componentOf[v]] += durations[v];
+        }
+        return sums;
+    }
+
+    public LongDirectedGraph getGraph() { return graph; }
+    public int[] getComponentIds() { return componentOf; }
+    /** Vertices grouped by component; component c spans getComponentOffsets()[c] .. [c + 1]. */
+    public int[] getComponentMembers() { return componentMembers; }
+    public int[] getComponentOffsets() { return componentOffsets; }
+    public int getComponentCount() { return componentCount; }
+}
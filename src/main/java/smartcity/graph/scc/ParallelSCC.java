@@ -0,0 +1,419 @@
+package smartcity.graph.scc;
+
+import smartcity.graph.CSRGraph;
+import smartcity.graph.DirectedGraph;
+import smartcity.graph.IntList;
+import smartcity.graph.Metrics;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Parallel strongly connected components using trimming plus forward-backward decomposition.
+ *
+ * Vertices with no remaining predecessors or successors are peeled off first as singleton
+ * components. The rest is split recursively on a ForkJoinPool: the SCC of a random pivot is
+ * the intersection of its forward and backward reachable sets, and the three remainders
+ * (forward only, backward only, unreached) are independent subproblems. Large BFS frontiers
+ * are expanded in parallel; small subproblems are finished with a Tarjan pass restricted
+ * to their vertices. Graphs below the sequential threshold go straight to {@link TarjanSCC}.
+ *
+ * A split that leaves one remainder with nearly all the vertices (a chain of small SCCs, or
+ * many disconnected ones) would recurse once per component, so such a remainder is handed to
+ * the restricted Tarjan pass instead. Recursion depth stays logarithmic and the run linear.
+ *
+ * The partition always equals Tarjan's. On the parallel path components are numbered by
+ * their smallest vertex and list their members in ascending order, so unlike TarjanSCC the
+ * ids are not a reverse topological order (see SCCFinder).
+ */
+public class ParallelSCC implements SCCFinder {
+    public static final int DEFAULT_SEQUENTIAL_THRESHOLD = 1 << 16;
+    public static final int DEFAULT_TARJAN_CUTOFF = 4096;
+
+    private static final int FRONTIER_CHUNK = 1024;
+    private static final int DONE = -1;
+    /** A remainder holding more than all but 1/2^UNBALANCED_SHIFT of the vertices is not split further. */
+    private static final int UNBALANCED_SHIFT = 4;
+
+    private final DirectedGraph graph;
+    private final Metrics metrics;
+    private final ForkJoinPool pool;
+    private final int sequentialThreshold;
+    private final int tarjanCutoff;
+
+    private CSRGraph reverse;
+    private AtomicIntegerArray label;
+    private int[] representative;
+    private int[] tarjanIndex;
+    private int[] tarjanLow;
+    private int[] edgeCursor;
+    private AtomicInteger nextLabel;
+    private AtomicLong visits;
+
+    private int[] componentOf;
+    private int[] componentMembers;
+    private int[] componentOffsets;
+    private int componentCount;
+
+    public ParallelSCC(DirectedGraph graph, Metrics metrics) {
+        this(graph, metrics, ForkJoinPool.commonPool(), DEFAULT_SEQUENTIAL_THRESHOLD, DEFAULT_TARJAN_CUTOFF);
+    }
+
+    /**
+     * @param sequentialThreshold Graphs with fewer vertices are handed to TarjanSCC
+     * @param tarjanCutoff Subproblems of at most this many vertices are solved with a restricted Tarjan pass
+     */
+    public ParallelSCC(DirectedGraph graph, Metrics metrics, ForkJoinPool pool,
+                       int sequentialThreshold, int tarjanCutoff) {
+        this.graph = graph;
+        this.metrics = metrics;
+        this.pool = pool;
+        this.sequentialThreshold = sequentialThreshold;
+        this.tarjanCutoff = Math.max(tarjanCutoff, 1);
+    }
+
+    @Override
+    public int findComponents() {
+        int n = graph.vertexCount();
+        if (n < sequentialThreshold) {
+            TarjanSCC tarjan = new TarjanSCC(graph, metrics);
+            componentCount = tarjan.findComponents();
+            componentOf = tarjan.getComponentIds();
+            componentMembers = tarjan.getComponentMembers();
+            componentOffsets = tarjan.getComponentOffsets();
+            return componentCount;
+        }
+
+        metrics.startTimer();
+        reverse = CSRGraph.transpose(graph);
+        label = new AtomicIntegerArray(n);
+        representative = new int[n];
+        tarjanIndex = new int[n];
+        tarjanLow = new int[n];
+        edgeCursor = new int[n];
+        nextLabel = new AtomicInteger(1);
+        visits = new AtomicLong();
+        Arrays.fill(tarjanIndex, -1);
+
+        int[] remaining = trim();
+        if (remaining.length > 0) {
+            pool.invoke(new Decompose(remaining, 0));
+        }
+        numberComponents();
+        metrics.stopTimer();
+        metrics.addDfsVisits(visits.get());
+
+        reverse = null;
+        label = null;
+        representative = null;
+        tarjanIndex = null;
+        tarjanLow = null;
+        edgeCursor = null;
+        return componentCount;
+    }
+
+    /**
+     * Repeatedly peel vertices without active predecessors or successors; each is its own component.
+     * @return The vertices that survive trimming, all labelled 0
+     */
+    private int[] trim() {
+        int n = graph.vertexCount();
+        int[] inDegree = new int[n];
+        int[] outDegree = new int[n];
+        int[] queue = new int[n];
+        int head = 0;
+        int tail = 0;
+
+        for (int v = 0; v < n; v++) {
+            inDegree[v] = reverse.outDegree(v);
+            outDegree[v] = graph.outDegree(v);
+            if (inDegree[v] == 0 || outDegree[v] == 0) {
+                label.set(v, DONE);
+                representative[v] = v;
+                queue[tail++] = v;
+            }
+        }
+
+        while (head < tail) {
+            int v = queue[head++];
+            for (int e = graph.edgeStart(v), end = graph.edgeEnd(v); e < end; e++) {
+                int w = graph.target(e);
+                if (--inDegree[w] == 0 && label.get(w) != DONE) {
+                    label.set(w, DONE);
+                    representative[w] = w;
+                    queue[tail++] = w;
+                }
+            }
+            for (int e = reverse.edgeStart(v), end = reverse.edgeEnd(v); e < end; e++) {
+                int u = reverse.target(e);
+                if (--outDegree[u] == 0 && label.get(u) != DONE) {
+                    label.set(u, DONE);
+                    representative[u] = u;
+                    queue[tail++] = u;
+                }
+            }
+        }
+        visits.addAndGet(tail);
+
+        IntList remaining = new IntList(n - tail);
+        for (int v = 0; v < n; v++) {
+            if (label.get(v) != DONE) {
+                remaining.add(v);
+            }
+        }
+        return remaining.toArray();
+    }
+
+    /**
+     * Turn representatives into dense component ids ordered by smallest member.
+     */
+    private void numberComponents() {
+        int n = graph.vertexCount();
+        int[] idOfRepresentative = new int[n];
+        Arrays.fill(idOfRepresentative, -1);
+        componentOf = new int[n];
+        componentOffsets = new int[n + 1];
+        componentCount = 0;
+
+        for (int v = 0; v < n; v++) {
+            int rep = representative[v];
+            if (idOfRepresentative[rep] == -1) {
+                idOfRepresentative[rep] = componentCount++;
+            }
+            componentOf[v] = idOfRepresentative[rep];
+            componentOffsets[componentOf[v] + 1]++;
+        }
+        for (int c = 0; c < componentCount; c++) {
+            componentOffsets[c + 1] += componentOffsets[c];
+        }
+        componentOffsets = Arrays.copyOf(componentOffsets, componentCount + 1);
+
+        int[] cursor = Arrays.copyOf(componentOffsets, componentCount);
+        componentMembers = new int[n];
+        for (int v = 0; v < n; v++) {
+            componentMembers[cursor[componentOf[v]]++] = v;
+        }
+    }
+
+    /**
+     * Forward-backward step on the vertices currently carrying one label.
+     * Distinct tasks own disjoint vertex sets, so the per-vertex arrays need no locking.
+     */
+    private final class Decompose extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] vertices;
+        private final int own;
+        private final boolean sequential;
+
+        Decompose(int[] vertices, int own) {
+            this(vertices, own, false);
+        }
+
+        Decompose(int[] vertices, int own, boolean sequential) {
+            this.vertices = vertices;
+            this.own = own;
+            this.sequential = sequential;
+        }
+
+        @Override
+        protected void compute() {
+            if (sequential || vertices.length <= tarjanCutoff) {
+                restrictedTarjan(vertices, own);
+                return;
+            }
+
+            int pivot = vertices[ThreadLocalRandom.current().nextInt(vertices.length)];
+            int forwardLabel = nextLabel.getAndIncrement();
+            int backwardLabel = nextLabel.getAndIncrement();
+
+            label.set(pivot, forwardLabel);
+            int[] forward = reach(graph, pivot, own, forwardLabel, -1, -1);
+
+            label.set(pivot, DONE);
+            int[] backward = reach(reverse, pivot, own, backwardLabel, forwardLabel, DONE);
+
+            IntList forwardOnly = new IntList();
+            IntList backwardOnly = new IntList();
+            IntList unreached = new IntList();
+            for (int v : forward) {
+                if (label.get(v) == forwardLabel) {
+                    forwardOnly.add(v);
+                }
+            }
+            for (int v : backward) {
+                if (label.get(v) == DONE) {
+                    representative[v] = pivot;
+                } else {
+                    backwardOnly.add(v);
+                }
+            }
+            for (int v : vertices) {
+                if (label.get(v) == own) {
+                    unreached.add(v);
+                }
+            }
+
+            List<Decompose> subproblems = new ArrayList<>(3);
+            addSubproblem(subproblems, forwardOnly, forwardLabel);
+            addSubproblem(subproblems, backwardOnly, backwardLabel);
+            addSubproblem(subproblems, unreached, own);
+            invokeAll(subproblems);
+        }
+
+        private void addSubproblem(List<Decompose> subproblems, IntList part, int partLabel) {
+            if (part.isEmpty()) {
+                return;
+            }
+            boolean unbalanced = part.size() > vertices.length - (vertices.length >>> UNBALANCED_SHIFT);
+            subproblems.add(new Decompose(part.toArray(), partLabel, unbalanced));
+        }
+    }
+
+    /**
+     * Breadth-first search from a source whose label was already switched.
+     * A vertex labelled fromA is relabelled toA, one labelled fromB is relabelled toB.
+     * @return Every vertex reached, including the source
+     */
+    private int[] reach(DirectedGraph g, int source, int fromA, int toA, int fromB, int toB) {
+        IntList visited = new IntList();
+        visited.add(source);
+        int[] frontier = {source};
+
+        while (frontier.length > 0) {
+            frontier = new Expand(g, frontier, 0, frontier.length, fromA, toA, fromB, toB).invoke();
+            visited.addAll(frontier, 0, frontier.length);
+        }
+        return visited.toArray();
+    }
+
+    /**
+     * Expands a slice of a BFS frontier; slices above FRONTIER_CHUNK are split and run in parallel.
+     * Claiming a vertex is a CAS on its label, so each vertex joins exactly one next frontier.
+     */
+    private final class Expand extends RecursiveTask<int[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final DirectedGraph g;
+        private final int[] frontier;
+        private final int from;
+        private final int to;
+        private final int fromA;
+        private final int toA;
+        private final int fromB;
+        private final int toB;
+
+        Expand(DirectedGraph g, int[] frontier, int from, int to, int fromA, int toA, int fromB, int toB) {
+            this.g = g;
+            this.frontier = frontier;
+            this.from = from;
+            this.to = to;
+            this.fromA = fromA;
+            this.toA = toA;
+            this.fromB = fromB;
+            this.toB = toB;
+        }
+
+        @Override
+        protected int[] compute() {
+            if (to - from > FRONTIER_CHUNK) {
+                int mid = (from + to) >>> 1;
+                Expand left = new Expand(g, frontier, from, mid, fromA, toA, fromB, toB);
+                left.fork();
+                int[] right = new Expand(g, frontier, mid, to, fromA, toA, fromB, toB).compute();
+                int[] leftResult = left.join();
+                int[] merged = Arrays.copyOf(leftResult, leftResult.length + right.length);
+                System.arraycopy(right, 0, merged, leftResult.length, right.length);
+                return merged;
+            }
+
+            IntList next = new IntList();
+            long examined = 0;
+            for (int i = from; i < to; i++) {
+                int v = frontier[i];
+                for (int e = g.edgeStart(v), end = g.edgeEnd(v); e < end; e++) {
+                    int w = g.target(e);
+                    examined++;
+                    if (label.compareAndSet(w, fromA, toA)
+                            || (fromB != -1 && label.compareAndSet(w, fromB, toB))) {
+                        next.add(w);
+                    }
+                }
+            }
+            visits.addAndGet(examined);
+            return next.toArray();
+        }
+    }
+
+    /**
+     * Iterative Tarjan over the vertices labelled own, ignoring every other vertex.
+     */
+    private void restrictedTarjan(int[] vertices, int own) {
+        int[] callStack = new int[vertices.length];
+        int[] stack = new int[vertices.length];
+        int stackSize = 0;
+        int index = 0;
+        long examined = 0;
+
+        for (int root : vertices) {
+            if (tarjanIndex[root] != -1) {
+                continue;
+            }
+            int depth = 0;
+            tarjanIndex[root] = tarjanLow[root] = index++;
+            edgeCursor[root] = graph.edgeStart(root);
+            stack[stackSize++] = root;
+            callStack[depth++] = root;
+
+            while (depth > 0) {
+                int v = callStack[depth - 1];
+                int e = edgeCursor[v];
+
+                if (e < graph.edgeEnd(v)) {
+                    edgeCursor[v] = e + 1;
+                    int w = graph.target(e);
+                    examined++;
+                    if (label.get(w) != own) {
+                        continue;
+                    }
+                    if (tarjanIndex[w] == -1) {
+                        tarjanIndex[w] = tarjanLow[w] = index++;
+                        edgeCursor[w] = graph.edgeStart(w);
+                        stack[stackSize++] = w;
+                        callStack[depth++] = w;
+                    } else {
+                        // Labelled own and already indexed: still on the stack
+                        tarjanLow[v] = Math.min(tarjanLow[v], tarjanIndex[w]);
+                    }
+                    continue;
+                }
+
+                depth--;
+                if (tarjanLow[v] == tarjanIndex[v]) {
+                    int w;
+                    do {
+                        w = stack[--stackSize];
+                        label.set(w, DONE);
+                        representative[w] = v;
+                    } while (w != v);
+                }
+                if (depth > 0) {
+                    int parent = callStack[depth - 1];
+                    tarjanLow[parent] = Math.min(tarjanLow[parent], tarjanLow[v]);
+                }
+            }
+        }
+        visits.addAndGet(examined + vertices.length);
+    }
+
+    @Override public DirectedGraph getGraph() { return graph; }
+    @Override public int[] getComponentIds() { return componentOf; }
+    @Override public int[] getComponentMembers() { return componentMembers; }
+    @Override public int[] getComponentOffsets() { return componentOffsets; }
+    @Override public int getComponentCount() { return componentCount; }
+}
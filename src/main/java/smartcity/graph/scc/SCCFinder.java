@@ -0,0 +1,93 @@
+package smartcity.graph.scc;
+
+import smartcity.graph.DirectedGraph;
+import smartcity.graph.LongIdMap;
+import smartcity.graph.StringIdMap;
+import java.util.*;
+
+/**
+ * Common interface of the strongly connected component engines.
+ * findComponents() computes the partition into primitive arrays; the boxed views are derived from them.
+ *
+ * Every implementation computes the same partition with dense ids 0 .. getComponentCount() - 1,
+ * but the numbering is its own: TarjanSCC and DynamicDependencyGraph number components in reverse
+ * topological order of the condensation, ParallelSCC by smallest member. Code that needs a
+ * topological order of the components sorts the condensation DAG instead of relying on the ids.
+ */
+public interface SCCFinder {
+
+    DirectedGraph getGraph();
+
+    /**
+     * Compute the components without boxing.
+     * @return Number of strongly connected components
+     */
+    int findComponents();
+
+    /** Component id of every vertex. */
+    int[] getComponentIds();
+
+    /** Vertices grouped by component; component c spans getComponentOffsets()[c] .. [c + 1]. */
+    int[] getComponentMembers();
+    int[] getComponentOffsets();
+    int getComponentCount();
+
+    default List<List<Integer>> findSCCs() {
+        int componentCount = findComponents();
+        int[] members = getComponentMembers();
+        int[] offsets = getComponentOffsets();
+
+        List<List<Integer>> components = new ArrayList<>(componentCount);
+        for (int c = 0; c < componentCount; c++) {
+            List<Integer> component = new ArrayList<>(offsets[c + 1] - offsets[c]);
+            for (int i = offsets[c]; i < offsets[c + 1]; i++) {
+                component.add(members[i]);
+            }
+            components.add(component);
+        }
+        return components;
+    }
+
+    /**
+     * Condensation DAG over the components already computed (they are computed first if needed).
+     * @param durations Per-vertex durations to aggregate per component, or null
+     */
+    default Condensation buildCondensation(int[] durations) {
+        return Condensation.build(this, durations);
+    }
+
+    default Map<Integer, List<Integer>> buildCondensationGraph() {
+        return buildCondensation(null).dag.toAdjacencyMap();
+    }
+
+    /**
+     * Components in the external ids the graph was interned from, grouped like
+     * getComponentMembers() (they are computed first if needed).
+     */
+    default long[][] toExternal(LongIdMap ids) {
+        if (getComponentIds() == null) {
+            findComponents();
+        }
+        return ids.toExternal(getComponentMembers(), getComponentOffsets(), getComponentCount());
+    }
+
+    default String[][] toExternal(StringIdMap ids) {
+        if (getComponentIds() == null) {
+            findComponents();
+        }
+        return ids.toExternal(getComponentMembers(), getComponentOffsets(), getComponentCount());
+    }
+
+    default List<Integer> getSCCSizes() {
+        if (getComponentIds() == null) {
+            findComponents();
+        }
+        int componentCount = getComponentCount();
+        int[] offsets = getComponentOffsets();
+        List<Integer> sizes = new ArrayList<>(componentCount);
+        for (int c = 0; c < componentCount; c++) {
+            sizes.add(offsets[c + 1] - offsets[c]);
+        }
+        return sizes;
+    }
+}
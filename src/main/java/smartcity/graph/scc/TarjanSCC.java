@@ -1,34 +1,57 @@
 package smartcity.graph.scc;
 
+import smartcity.graph.CSRGraph;
+import smartcity.graph.DirectedGraph;
 import smartcity.graph.Metrics;
 import java.util.*;
 
 
-public class TarjanSCC {
-    private Map<Integer, List<Integer>> graph;
+/**
+ * Tarjan's strongly connected components algorithm.
+ * The DFS is driven by an explicit int call stack with per-vertex edge cursors,
+ * so deep dependency chains do not depend on the thread stack size.
+ */
+public class TarjanSCC implements SCCFinder {
+    private DirectedGraph graph;
     private Metrics metrics;
     private int index;
     private int[] indices;
     private int[] lowLinks;
-    private boolean[] onStack;
-    private Stack<Integer> stack;
-    private List<List<Integer>> components;
+    private int[] edgeCursor;
+    private int[] callStack;
+    private int[] stack;
+    private int stackSize;
+    private int[] componentOf;
+    private int[] componentMembers;
+    private int[] componentOffsets;
+    private int componentCount;
 
     public TarjanSCC(Map<Integer, List<Integer>> graph, Metrics metrics) {
+        this(CSRGraph.fromAdjacencyMap(graph), metrics);
+    }
+
+    public TarjanSCC(DirectedGraph graph, Metrics metrics) {
         this.graph = graph;
         this.metrics = metrics;
     }
 
-    public List<List<Integer>> findSCCs() {
-        int n = graph.size();
+    @Override
+    public int findComponents() {
+        int n = graph.vertexCount();
         indices = new int[n];
         lowLinks = new int[n];
-        onStack = new boolean[n];
-        stack = new Stack<>();
-        components = new ArrayList<>();
+        edgeCursor = new int[n];
+        callStack = new int[n];
+        stack = new int[n];
+        stackSize = 0;
+        componentOf = new int[n];
+        componentMembers = new int[n];
+        componentOffsets = new int[n + 1];
+        componentCount = 0;
         index = 0;
 
         Arrays.fill(indices, -1);
+        Arrays.fill(componentOf, -1);
 
         metrics.startTimer();
         for (int i = 0; i < n; i++) {
@@ -36,80 +59,69 @@ public class TarjanSCC {
                 strongConnect(i);
             }
         }
+        // Every vertex is visited and every edge examined exactly once; report them in one call
+        metrics.addDfsVisits((long) n + graph.edgeCount());
         metrics.stopTimer();
 
-        return components;
+        edgeCursor = null;
+        callStack = null;
+        stack = null;
+        return componentCount;
     }
 
-    private void strongConnect(int v) {
-        metrics.incrementDfsVisits();
-        indices[v] = index;
-        lowLinks[v] = index;
-        index++;
-        stack.push(v);
-        onStack[v] = true;
-
-        for (int neighbor : graph.getOrDefault(v, new ArrayList<>())) {
-            metrics.incrementDfsVisits();
-            if (indices[neighbor] == -1) {
-                strongConnect(neighbor);
-                lowLinks[v] = Math.min(lowLinks[v], lowLinks[neighbor]);
-            } else if (onStack[neighbor]) {
-                lowLinks[v] = Math.min(lowLinks[v], indices[neighbor]);
+    private void strongConnect(int root) {
+        int depth = 0;
+        visit(root);
+        callStack[depth++] = root;
+
+        while (depth > 0) {
+            int v = callStack[depth - 1];
+            int e = edgeCursor[v];
+
+            if (e < graph.edgeEnd(v)) {
+                edgeCursor[v] = e + 1;
+                int neighbor = graph.target(e);
+                if (indices[neighbor] == -1) {
+                    visit(neighbor);
+                    callStack[depth++] = neighbor;
+                } else if (componentOf[neighbor] == -1) {
+                    // Visited but not yet assigned to a component: still on the stack
+                    lowLinks[v] = Math.min(lowLinks[v], indices[neighbor]);
+                }
+                continue;
             }
-        }
-
-        if (lowLinks[v] == indices[v]) {
-            List<Integer> component = new ArrayList<>();
-            int w;
-            do {
-                w = stack.pop();
-                onStack[w] = false;
-                component.add(w);
-            } while (w != v);
-            components.add(component);
-        }
-    }
-
-    public Map<Integer, List<Integer>> buildCondensationGraph() {
-        List<List<Integer>> sccs = findSCCs();
-        Map<Integer, Integer> componentMap = new HashMap<>();
-        Map<Integer, List<Integer>> condensation = new HashMap<>();
 
-        for (int compId = 0; compId < sccs.size(); compId++) {
-            for (int node : sccs.get(compId)) {
-                componentMap.put(node, compId);
+            depth--;
+            if (lowLinks[v] == indices[v]) {
+                int w;
+                int pos = componentOffsets[componentCount];
+                do {
+                    w = stack[--stackSize];
+                    componentOf[w] = componentCount;
+                    componentMembers[pos++] = w;
+                } while (w != v);
+                componentOffsets[++componentCount] = pos;
             }
-        }
-
-        for (int i = 0; i < sccs.size(); i++) {
-            condensation.put(i, new ArrayList<>());
-        }
-
-        for (Map.Entry<Integer, List<Integer>> entry : graph.entrySet()) {
-            int fromNode = entry.getKey();
-            int fromComp = componentMap.get(fromNode);
-
-            for (int toNode : entry.getValue()) {
-                int toComp = componentMap.get(toNode);
-                if (fromComp != toComp) {
-                    List<Integer> neighbors = condensation.get(fromComp);
-                    if (!neighbors.contains(toComp)) {
-                        neighbors.add(toComp);
-                    }
-                }
+            if (depth > 0) {
+                int parent = callStack[depth - 1];
+                lowLinks[parent] = Math.min(lowLinks[parent], lowLinks[v]);
             }
         }
-
-        return condensation;
     }
 
-    public List<Integer> getSCCSizes() {
-        List<List<Integer>> sccs = findSCCs();
-        List<Integer> sizes = new ArrayList<>();
-        for (List<Integer> scc : sccs) {
-            sizes.add(scc.size());
-        }
-        return sizes;
+    private void visit(int v) {
+        indices[v] = index;
+        lowLinks[v] = index;
+        index++;
+        edgeCursor[v] = graph.edgeStart(v);
+        stack[stackSize++] = v;
     }
+
+    @Override public DirectedGraph getGraph() { return graph; }
+
+    /** Component ids are numbered in completion order, which is a reverse topological order of the condensation. */
+    @Override public int[] getComponentIds() { return componentOf; }
+    @Override public int[] getComponentMembers() { return componentMembers; }
+    @Override public int[] getComponentOffsets() { return componentOffsets; }
+    @Override public int getComponentCount() { return componentCount; }
 }
\ No newline at end of file
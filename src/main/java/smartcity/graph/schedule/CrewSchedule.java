@@ -0,0 +1,32 @@
+package smartcity.graph.schedule;
+
+/**
+ * Result of a ListScheduler run. start and crew are indexed by task.
+ */
+public class CrewSchedule {
+    public final long[] start;
+    public final int[] crew;
+    public final int crews;
+    public final long makespan;
+    /** Total time crews spent working, summed over all crews. */
+    public final long busyTime;
+
+    public CrewSchedule(long[] start, int[] crew, int crews, long makespan, long busyTime) {
+        this.start = start;
+        this.crew = crew;
+        this.crews = crews;
+        this.makespan = makespan;
+        this.busyTime = busyTime;
+    }
+
+    /** Fraction of the available crew time spent working, between 0 and 1. */
+    public double utilization() {
+        return makespan == 0 ? 0 : (double) busyTime / ((double) makespan * crews);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CrewSchedule{crews=%d, makespan=%d, utilization=%.1f%%}",
+                crews, makespan, 100 * utilization());
+    }
+}
@@ -0,0 +1,219 @@
+package smartcity.graph.schedule;
+
+import smartcity.graph.DirectedGraph;
+import smartcity.graph.Metrics;
+import java.util.Arrays;
+
+/**
+ * Event-driven list scheduling of a task DAG on a fixed number of crews.
+ *
+ * Whenever a crew is free, the ready task with the highest priority starts on it; time then
+ * jumps to the next completion, which releases the crew and may make successors ready. Ready
+ * tasks and running tasks each live in a binary heap over primitive arrays, so a run costs
+ * O((V + E) + V log V) with no per-task objects.
+ *
+ * scheduleHlfet() uses HLFET priorities: a task's static level, the longest duration-weighted
+ * path from it to a sink (itself included), so tasks on the critical path go first.
+ * schedule(taskOrder) instead prioritizes by position in a given order, e.g. a topological
+ * order or TopologicalSort.deriveTaskOrder, which serves as the naive baseline.
+ */
+public class ListScheduler {
+    private final DirectedGraph graph;
+    private final int[] durations;
+    private final int crews;
+    private final Metrics metrics;
+
+    public ListScheduler(DirectedGraph graph, int[] durations, int crews, Metrics metrics) {
+        if (crews < 1) {
+            throw new IllegalArgumentException("At least one crew is required, got " + crews);
+        }
+        this.graph = graph;
+        this.durations = durations;
+        this.crews = crews;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Schedule by HLFET static level.
+     * @param topoOrder Complete topological order, used to compute the levels in one backward sweep
+     */
+    public CrewSchedule scheduleHlfet(int[] topoOrder) {
+        return schedule(staticLevels(topoOrder));
+    }
+
+    /**
+     * Schedule with priority given by position in taskOrder: earlier tasks start first.
+     * @param taskOrder Every task exactly once
+     */
+    public CrewSchedule schedule(int[] taskOrder) {
+        int n = graph.vertexCount();
+        if (taskOrder.length != n) {
+            throw new IllegalArgumentException("Task order covers " + taskOrder.length + " of " + n + " tasks");
+        }
+        long[] priority = new long[n];
+        for (int i = 0; i < n; i++) {
+            priority[taskOrder[i]] = n - i;
+        }
+        return schedule(priority);
+    }
+
+    /**
+     * Longest duration-weighted path from every task to a sink, the task itself included.
+     */
+    public long[] staticLevels(int[] topoOrder) {
+        int n = graph.vertexCount();
+        if (topoOrder.length != n) {
+            throw new IllegalArgumentException("Graph contains cycles, scheduling needs a complete topological order");
+        }
+        long[] level = new long[n];
+        for (int i = n - 1; i >= 0; i--) {
+            int node = topoOrder[i];
+            long best = 0;
+            for (int e = graph.edgeStart(node), end = graph.edgeEnd(node); e < end; e++) {
+                best = Math.max(best, level[graph.target(e)]);
+            }
+            level[node] = durations[node] + best;
+        }
+        return level;
+    }
+
+    /**
+     * Simulate execution with arbitrary priorities; higher values start first, ties go to the
+     * lower task id.
+     */
+    public CrewSchedule schedule(long[] priority) {
+        metrics.startTimer();
+
+        int n = graph.vertexCount();
+        int[] inDegree = new int[n];
+        for (int e = 0, m = graph.edgeCount(); e < m; e++) {
+            inDegree[graph.target(e)]++;
+        }
+
+        long[] start = new long[n];
+        long[] finish = new long[n];
+        int[] crewOf = new int[n];
+        Arrays.fill(start, -1);
+
+        // Ready tasks: max-heap on priority. Running tasks: min-heap on finish time.
+        TaskHeap ready = new TaskHeap(n, priority, true);
+        TaskHeap running = new TaskHeap(Math.min(n, crews), finish, false);
+        int[] freeCrews = new int[crews];
+        int freeCount = crews;
+        for (int c = 0; c < crews; c++) {
+            freeCrews[c] = crews - 1 - c; // Crew 0 on top
+        }
+
+        for (int v = 0; v < n; v++) {
+            if (inDegree[v] == 0) {
+                ready.push(v);
+            }
+        }
+
+        long time = 0;
+        long busy = 0;
+        int completed = 0;
+        long relaxations = 0;
+        while (completed < n) {
+            while (freeCount > 0 && !ready.isEmpty()) {
+                int task = ready.pop();
+                int crew = freeCrews[--freeCount];
+                crewOf[task] = crew;
+                start[task] = time;
+                finish[task] = time + durations[task];
+                busy += durations[task];
+                running.push(task);
+            }
+            if (running.isEmpty()) {
+                throw new IllegalArgumentException("Graph contains cycles, " + (n - completed) + " tasks can never start");
+            }
+
+            // Complete every task that finishes at the next event time before dispatching again
+            time = finish[running.peek()];
+            while (!running.isEmpty() && finish[running.peek()] == time) {
+                int task = running.pop();
+                completed++;
+                freeCrews[freeCount++] = crewOf[task];
+                relaxations += graph.outDegree(task);
+                for (int e = graph.edgeStart(task), end = graph.edgeEnd(task); e < end; e++) {
+                    int successor = graph.target(e);
+                    if (--inDegree[successor] == 0) {
+                        ready.push(successor);
+                    }
+                }
+            }
+        }
+
+        metrics.stopTimer();
+        metrics.addEdgeRelaxations(relaxations);
+        metrics.addQueueOperations(ready.operations + running.operations);
+        return new CrewSchedule(start, crewOf, crews, time, busy);
+    }
+
+    /**
+     * Binary heap of task ids ordered by a long key array.
+     */
+    private static final class TaskHeap {
+        private final int[] heap;
+        private final long[] key;
+        private final boolean max;
+        private int size;
+        long operations;
+
+        TaskHeap(int capacity, long[] key, boolean max) {
+            this.heap = new int[Math.max(capacity, 1)];
+            this.key = key;
+            this.max = max;
+        }
+
+        boolean isEmpty() { return size == 0; }
+        int peek() { return heap[0]; }
+
+        /** True if task a belongs above task b. */
+        private boolean before(int a, int b) {
+            if (key[a] != key[b]) {
+                return max ? key[a] > key[b] : key[a] < key[b];
+            }
+            return a < b;
+        }
+
+        void push(int task) {
+            operations++;
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >> 1;
+                if (!before(task, heap[parent])) {
+                    break;
+                }
+                heap[i] = heap[parent];
+                i = parent;
+            }
+            heap[i] = task;
+        }
+
+        int pop() {
+            operations++;
+            int top = heap[0];
+            int last = heap[--size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && before(heap[child + 1], heap[child])) {
+                    child++;
+                }
+                if (!before(heap[child], last)) {
+                    break;
+                }
+                heap[i] = heap[child];
+                i = child;
+            }
+            if (size > 0) {
+                heap[i] = last;
+            }
+            return top;
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package smartcity.graph.schedule;
+
+import smartcity.graph.DirectedGraph;
+import smartcity.graph.LatencyHistogram;
+import smartcity.graph.Metrics;
+import smartcity.graph.topo.TopologicalSort;
+import smartcity.model.Task;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Executes task actions in dependency order on an Executor.
+ *
+ * Remaining in-degrees are kept in an AtomicIntegerArray, so there is no global lock: the thread
+ * that finishes a task decrements its successors and is the only one to see each of them reach
+ * zero. The first successor that becomes ready runs next on the same thread and the others are
+ * submitted, which keeps chains on one worker and avoids a submit per task. On a ForkJoinPool,
+ * submissions from a worker go to its local deque, so scheduling overhead stays low even for
+ * millions of tiny tasks.
+ *
+ * If an action throws, the remaining actions are skipped and run() rethrows the first failure.
+ * If the executor rejects a task (shut down, or a bounded queue is full), that task and its
+ * successors can never run, so run() fails at once with the rejection as the cause.
+ * Per-task wall time and queue wait are also recorded into the "task/wall" and "task/wait"
+ * histograms of the metrics.
+ */
+public class ParallelTaskRunner {
+    private final Metrics metrics;
+    private final Executor executor;
+
+    public ParallelTaskRunner(Metrics metrics) {
+        this(metrics, ForkJoinPool.commonPool());
+    }
+
+    public ParallelTaskRunner(Metrics metrics, Executor executor) {
+        this.metrics = metrics;
+        this.executor = executor;
+    }
+
+    /**
+     * Run the actions of tasks whose ids are vertices of graph.
+     */
+    public RunReport run(DirectedGraph graph, List<Task> tasks) throws InterruptedException {
+        Runnable[] actions = new Runnable[graph.vertexCount()];
+        for (Task task : tasks) {
+            actions[task.getId()] = task.getAction();
+        }
+        return run(graph, actions);
+    }
+
+    /**
+     * @param actions Action of every vertex; null entries are no-ops
+     * @throws IllegalArgumentException If the graph has a cycle
+     * @throws IllegalStateException If an action threw or the executor rejected a task; the
+     *                               exception is the cause
+     */
+    public RunReport run(DirectedGraph graph, Runnable[] actions) throws InterruptedException {
+        int n = graph.vertexCount();
+        if (actions.length != n) {
+            throw new IllegalArgumentException("Expected " + n + " actions, got " + actions.length);
+        }
+        if (!TopologicalSort.isAcyclic(graph)) {
+            throw new IllegalArgumentException("Graph contains cycles, some tasks could never run");
+        }
+
+        metrics.startTimer();
+        Execution execution = new Execution(graph, actions);
+        long begin = System.nanoTime();
+        if (n > 0) {
+            // Roots come from the initial in-degrees; workers are already lowering the live ones
+            for (int root : execution.roots) {
+                execution.readyAt[root] = begin;
+            }
+            for (int root : execution.roots) {
+                if (!execution.submit(root)) {
+                    break;
+                }
+            }
+            execution.done.await();
+        }
+        long elapsed = System.nanoTime() - begin;
+        metrics.stopTimer();
+
+        Failure failure = execution.failure.get();
+        if (failure != null) {
+            String reason = failure.cause instanceof RejectedExecutionException
+                    ? " was rejected by the executor"
+                    : " failed";
+            throw new IllegalStateException("Task " + failure.task + reason, failure.cause);
+        }
+
+        long[] wallTime = new long[n];
+        long[] queueWait = new long[n];
+        long totalWall = 0;
+        long totalWait = 0;
+        LatencyHistogram wallHistogram = metrics.histogram("task/wall");
+        LatencyHistogram waitHistogram = metrics.histogram("task/wait");
+        for (int v = 0; v < n; v++) {
+            wallTime[v] = execution.finishedAt[v] - execution.startedAt[v];
+            queueWait[v] = execution.startedAt[v] - execution.readyAt[v];
+            totalWall += wallTime[v];
+            totalWait += queueWait[v];
+            wallHistogram.record(wallTime[v]);
+            waitHistogram.record(queueWait[v]);
+        }
+        metrics.addTaskTimes(n, totalWall, totalWait);
+        return new RunReport(wallTime, queueWait, elapsed);
+    }
+
+    private static final class Failure {
+        final int task;
+        final Throwable cause;
+
+        Failure(int task, Throwable cause) {
+            this.task = task;
+            this.cause = cause;
+        }
+    }
+
+    /**
+     * State of one run. Plain array slots are written by the single thread that runs the task;
+     * the atomic in-degree updates and the final latch publish them.
+     */
+    private final class Execution {
+        final DirectedGraph graph;
+        final Runnable[] actions;
+        final AtomicIntegerArray remaining;
+        final int[] roots;
+        final long[] readyAt;
+        final long[] startedAt;
+        final long[] finishedAt;
+        final AtomicInteger pending;
+        final AtomicReference<Failure> failure = new AtomicReference<>();
+        final CountDownLatch done = new CountDownLatch(1);
+
+        Execution(DirectedGraph graph, Runnable[] actions) {
+            int n = graph.vertexCount();
+            this.graph = graph;
+            this.actions = actions;
+            int[] inDegree = new int[n];
+            for (int e = 0, m = graph.edgeCount(); e < m; e++) {
+                inDegree[graph.target(e)]++;
+            }
+            this.remaining = new AtomicIntegerArray(inDegree);
+            int rootCount = 0;
+            for (int v = 0; v < n; v++) {
+                if (inDegree[v] == 0) {
+                    inDegree[rootCount++] = v;
+                }
+            }
+            this.roots = Arrays.copyOf(inDegree, rootCount);
+            this.readyAt = new long[n];
+            this.startedAt = new long[n];
+            this.finishedAt = new long[n];
+            this.pending = new AtomicInteger(n);
+        }
+
+        /**
+         * @return false if the executor rejected the task; the run is then failed and released
+         */
+        boolean submit(int v) {
+            try {
+                executor.execute(() -> runFrom(v));
+                return true;
+            } catch (RejectedExecutionException e) {
+                // v and everything after it can never finish, so pending would never reach zero
+                failure.compareAndSet(null, new Failure(v, e));
+                done.countDown();
+                return false;
+            }
+        }
+
+        private void runFrom(int first) {
+            int next = first;
+            while (next != -1) {
+                int task = next;
+                next = -1;
+
+                startedAt[task] = System.nanoTime();
+                Runnable action = actions[task];
+                if (action != null && failure.get() == null) {
+                    try {
+                        action.run();
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, new Failure(task, t));
+                    }
+                }
+                long end = System.nanoTime();
+                finishedAt[task] = end;
+
+                for (int e = graph.edgeStart(task), stop = graph.edgeEnd(task); e < stop; e++) {
+                    int successor = graph.target(e);
+                    if (remaining.decrementAndGet(successor) == 0) {
+                        readyAt[successor] = end;
+                        if (next == -1) {
+                            next = successor;
+                        } else {
+                            submit(successor);
+                        }
+                    }
+                }
+                if (pending.decrementAndGet() == 0) {
+                    done.countDown();
+                }
+            }
+        }
+    }
+
+    /**
+     * Timing of one run, in nanoseconds. wallTime and queueWait are indexed by task; queue wait
+     * is the time between a task becoming ready and starting.
+     */
+    public static class RunReport {
+        public final long[] wallTime;
+        public final long[] queueWait;
+        public final long elapsed;
+
+        public RunReport(long[] wallTime, long[] queueWait, long elapsed) {
+            this.wallTime = wallTime;
+            this.queueWait = queueWait;
+            this.elapsed = elapsed;
+        }
+
+        public long totalWallTime() {
+            long total = 0;
+            for (long t : wallTime) {
+                total += t;
+            }
+            return total;
+        }
+
+        public long totalQueueWait() {
+            long total = 0;
+            for (long t : queueWait) {
+                total += t;
+            }
+            return total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("RunReport{tasks=%d, elapsed=%d ns, taskTime=%d ns, queueWait=%d ns}",
+                    wallTime.length, elapsed, totalWallTime(), totalQueueWait());
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package smartcity.graph.topo;
+
+import smartcity.graph.DirectedGraph;
+import smartcity.graph.IntList;
+import smartcity.graph.Metrics;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Level-synchronous variant of Kahn's algorithm.
+ * Every frontier (all vertices whose predecessors are already placed) is expanded concurrently
+ * on a ForkJoinPool, with in-degrees decremented atomically. Besides the order, each vertex
+ * gets its level: the length of the longest dependency chain leading to it, so all vertices
+ * of one level can be dispatched in parallel.
+ */
+public class ParallelTopologicalSort {
+    private static final int CHUNK = 1024;
+
+    private final Metrics metrics;
+    private final ForkJoinPool pool;
+
+    public ParallelTopologicalSort(Metrics metrics) {
+        this(metrics, ForkJoinPool.commonPool());
+    }
+
+    public ParallelTopologicalSort(Metrics metrics, ForkJoinPool pool) {
+        this.metrics = metrics;
+        this.pool = pool;
+    }
+
+    /**
+     * @param graph The input graph
+     * @return Order and levels; if the graph has a cycle the order is partial and unplaced vertices have level -1
+     */
+    public LevelOrder sort(DirectedGraph graph) {
+        metrics.startTimer();
+
+        int n = graph.vertexCount();
+        AtomicIntegerArray inDegree = new AtomicIntegerArray(n);
+        pool.invoke(new CountInDegrees(graph, inDegree, 0, n));
+
+        int[] order = new int[n];
+        int[] level = new int[n];
+        Arrays.fill(level, -1);
+        int tail = 0;
+        for (int v = 0; v < n; v++) {
+            if (inDegree.get(v) == 0) {
+                order[tail++] = v;
+                level[v] = 0;
+            }
+        }
+
+        IntList levelOffsets = new IntList();
+        AtomicInteger nextTail = new AtomicInteger(tail);
+        AtomicLong operations = new AtomicLong(tail);
+        int head = 0;
+        int depth = 0;
+        while (head < tail) {
+            levelOffsets.add(head);
+            pool.invoke(new ExpandLevel(graph, inDegree, order, level, depth + 1, nextTail, operations, head, tail));
+            head = tail;
+            tail = nextTail.get();
+            depth++;
+        }
+        levelOffsets.add(tail);
+
+        metrics.stopTimer();
+        metrics.addQueueOperations(operations.get());
+
+        if (tail != n) {
+            order = Arrays.copyOf(order, tail);
+        }
+        return new LevelOrder(order, level, levelOffsets.toArray());
+    }
+
+    private static final class CountInDegrees extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final DirectedGraph graph;
+        private final AtomicIntegerArray inDegree;
+        private final int from;
+        private final int to;
+
+        CountInDegrees(DirectedGraph graph, AtomicIntegerArray inDegree, int from, int to) {
+            this.graph = graph;
+            this.inDegree = inDegree;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (from >= to) {
+                return;
+            }
+            if (to - from > CHUNK && graph.edgeEnd(to - 1) - graph.edgeStart(from) > CHUNK) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new CountInDegrees(graph, inDegree, from, mid),
+                        new CountInDegrees(graph, inDegree, mid, to));
+                return;
+            }
+            for (int e = graph.edgeStart(from), end = graph.edgeEnd(to - 1); e < end; e++) {
+                inDegree.incrementAndGet(graph.target(e));
+            }
+        }
+    }
+
+    /**
+     * Expands order[from..to) of the current frontier. Each chunk collects the vertices it
+     * released and appends them to the next frontier with a single reservation on the shared tail.
+     */
+    private static final class ExpandLevel extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final DirectedGraph graph;
+        private final AtomicIntegerArray inDegree;
+        private final int[] order;
+        private final int[] level;
+        private final int nextLevel;
+        private final AtomicInteger tail;
+        private final AtomicLong operations;
+        private final int from;
+        private final int to;
+
+        ExpandLevel(DirectedGraph graph, AtomicIntegerArray inDegree, int[] order, int[] level, int nextLevel,
+                    AtomicInteger tail, AtomicLong operations, int from, int to) {
+            this.graph = graph;
+            this.inDegree = inDegree;
+            this.order = order;
+            this.level = level;
+            this.nextLevel = nextLevel;
+            this.tail = tail;
+            this.operations = operations;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > CHUNK) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new ExpandLevel(graph, inDegree, order, level, nextLevel, tail, operations, from, mid),
+                        new ExpandLevel(graph, inDegree, order, level, nextLevel, tail, operations, mid, to));
+                return;
+            }
+
+            IntList released = new IntList();
+            for (int i = from; i < to; i++) {
+                int v = order[i];
+                for (int e = graph.edgeStart(v), end = graph.edgeEnd(v); e < end; e++) {
+                    int w = graph.target(e);
+                    if (inDegree.decrementAndGet(w) == 0) {
+                        released.add(w);
+                    }
+                }
+            }
+
+            int count = released.size();
+            int pos = tail.getAndAdd(count);
+            for (int i = 0; i < count; i++) {
+                int w = released.get(i);
+                order[pos + i] = w;
+                level[w] = nextLevel;
+            }
+            operations.addAndGet((to - from) + count);
+        }
+    }
+
+    /**
+     * Result of a level-synchronous sort. Level k occupies order[levelOffsets[k] .. levelOffsets[k + 1]);
+     * the order of vertices inside a level is unspecified.
+     */
+    public static class LevelOrder {
+        public final int[] order;
+        public final int[] level;
+        public final int[] levelOffsets;
+
+        public LevelOrder(int[] order, int[] level, int[] levelOffsets) {
+            this.order = order;
+            this.level = level;
+            this.levelOffsets = levelOffsets;
+        }
+
+        public int levelCount() {
+            return levelOffsets.length - 1;
+        }
+
+        public boolean isComplete() {
+            return order.length == level.length;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("LevelOrder{vertices=%d, levels=%d}", order.length, levelCount());
+        }
+    }
+}
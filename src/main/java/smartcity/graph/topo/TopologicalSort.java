@@ -1,5 +1,8 @@
 package smartcity.graph.topo;
 
+import smartcity.graph.CSRGraph;
+import smartcity.graph.DirectedGraph;
+import smartcity.graph.LongDirectedGraph;
 import smartcity.graph.Metrics;
 import java.util.*;
 
@@ -16,54 +19,86 @@ public class TopologicalSort {
     /**
      * Perform topological sort using Kahn's algorithm
      * @param graph The input graph as adjacency list
-     * @return Topological order of vertices, or empty list if cycle detected
+     * @return Topological order of vertices, or a partial order if a cycle is detected
      */
     public List<Integer> kahnTopologicalSort(Map<Integer, List<Integer>> graph) {
+        int[] order = kahnTopologicalSort(CSRGraph.fromAdjacencyMap(graph));
+        List<Integer> topoOrder = new ArrayList<>(order.length);
+        for (int node : order) {
+            topoOrder.add(node);
+        }
+        return topoOrder;
+    }
+
+    /**
+     * Perform topological sort using Kahn's algorithm on a CSR graph.
+     * The result array doubles as the FIFO queue, so no boxing takes place.
+     * @param graph The input graph
+     * @return Topological order of vertices; shorter than the vertex count if a cycle is detected
+     */
+    public int[] kahnTopologicalSort(DirectedGraph graph) {
         metrics.startTimer();
 
-        int n = graph.size();
-        int[] inDegree = new int[n];
+        int[] queue = new int[graph.vertexCount()];
+        int tail = kahn(graph, queue);
+        // Every edge lowers one in-degree; every enqueued vertex is pushed once and popped once
+        metrics.addQueueOperations(graph.edgeCount() + 2L * tail);
 
-        for (List<Integer> neighbors : graph.values()) {
-            for (int neighbor : neighbors) {
-                inDegree[neighbor]++;
-                metrics.incrementQueueOperations();
-            }
+        metrics.stopTimer();
+        return finishOrder(queue, tail);
+    }
+
+    /**
+     * True if the graph has no cycle. Unlike kahnTopologicalSort it records nothing and prints
+     * nothing, for callers that report a cycle themselves.
+     */
+    public static boolean isAcyclic(DirectedGraph graph) {
+        int n = graph.vertexCount();
+        return kahn(graph, new int[n]) == n;
+    }
+
+    /**
+     * Kahn's algorithm into queue, which doubles as the FIFO and receives the order.
+     * @return Number of vertices ordered; less than the vertex count if there is a cycle
+     */
+    private static int kahn(DirectedGraph graph, int[] queue) {
+        int n = graph.vertexCount();
+        int[] inDegree = new int[n];
+        for (int e = 0, m = graph.edgeCount(); e < m; e++) {
+            inDegree[graph.target(e)]++;
         }
 
-        Queue<Integer> queue = new LinkedList<>();
+        int head = 0;
+        int tail = 0;
         for (int i = 0; i < n; i++) {
             if (inDegree[i] == 0) {
-                queue.offer(i);
-                metrics.incrementQueueOperations();
+                queue[tail++] = i;
             }
         }
 
-        List<Integer> topoOrder = new ArrayList<>();
-        int visitedCount = 0;
-
-        while (!queue.isEmpty()) {
-            int node = queue.poll();
-            metrics.incrementQueueOperations();
-            topoOrder.add(node);
-            visitedCount++;
+        while (head < tail) {
+            int node = queue[head++];
 
-            for (int neighbor : graph.getOrDefault(node, new ArrayList<>())) {
-                inDegree[neighbor]--;
-                if (inDegree[neighbor] == 0) {
-                    queue.offer(neighbor);
-                    metrics.incrementQueueOperations();
+            for (int e = graph.edgeStart(node), end = graph.edgeEnd(node); e < end; e++) {
+                int neighbor = graph.target(e);
+                if (--inDegree[neighbor] == 0) {
+                    queue[tail++] = neighbor;
                 }
             }
         }
+        return tail;
+    }
 
-        metrics.stopTimer();
-
-        if (visitedCount != n) {
+    /**
+     * Shared tail of both Kahn overloads; only their edge loops differ in the index type.
+     */
+    private static int[] finishOrder(int[] queue, int tail) {
+        if (tail != queue.length) {
             System.out.println("Warning: Graph contains cycles, topological sort may be incomplete");
+            return Arrays.copyOf(queue, tail);
         }
 
-        return topoOrder;
+        return queue;
     }
 
     public List<Integer> deriveTaskOrder(List<Integer> componentOrder, List<List<Integer>> sccs) {
@@ -75,4 +110,42 @@ public class TopologicalSort {
 
         return taskOrder;
     }
+
+    /**
+     * Kahn's algorithm over a long-indexed graph, such as an OffHeapGraph with more than
+     * 2^31 edges. In-degrees and the queue are per vertex, so they still fit in int arrays.
+     * The DirectedGraph overload keeps its own int-indexed loop, which a view would slow down.
+     * @return Topological order of vertices; shorter than the vertex count if a cycle is detected
+     */
+    public int[] kahnTopologicalSort(LongDirectedGraph graph) {
+        metrics.startTimer();
+
+        int n = graph.vertexCount();
+        int[] inDegree = new int[n];
+        for (long e = 0, m = graph.edgeCount(); e < m; e++) {
+            inDegree[graph.target(e)]++;
+        }
+
+        int[] queue = new int[n];
+        int head = 0;
+        int tail = 0;
+        for (int i = 0; i < n; i++) {
+            if (inDegree[i] == 0) {
+                queue[tail++] = i;
+            }
+        }
+        while (head < tail) {
+            int node = queue[head++];
+            for (long e = graph.edgeStart(node), end = graph.edgeEnd(node); e < end; e++) {
+                int neighbor = graph.target(e);
+                if (--inDegree[neighbor] == 0) {
+                    queue[tail++] = neighbor;
+                }
+            }
+        }
+        metrics.addQueueOperations(graph.edgeCount() + 2L * tail);
+
+        metrics.stopTimer();
+        return finishOrder(queue, tail);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,219 @@
+package smartcity.io;
+
+import smartcity.graph.CSRGraph;
+import smartcity.graph.DirectedGraph;
+import smartcity.graph.LongDirectedGraph;
+import smartcity.model.TaskGraph;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Compact little-endian binary dataset format:
+ * <pre>
+ * int  magic ("SCGB")       int  version
+ * int  vertexCount          int  reserved
+ * long edgeCount
+ * long offsets[vertexCount + 1]
+ * int  targets[edgeCount]
+ * int  durations[vertexCount]
+ * </pre>
+ * Files are opened with {@link #map(Path)}, which memory-maps the offsets and targets
+ * sections and serves them as a {@link DirectedGraph} without copying them onto the heap.
+ */
+public final class BinaryGraphFormat {
+    public static final int MAGIC = 0x53434742;
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 24;
+
+    private static final int WRITE_BUFFER_BYTES = 1 << 16;
+
+    private BinaryGraphFormat() {
+    }
+
+    public static void write(Path path, DirectedGraph graph, int[] durations) throws IOException {
+        write(path, LongDirectedGraph.of(graph), durations);
+    }
+
+    /**
+     * Write a long-indexed graph; the format already stores 64-bit offsets and edge counts,
+     * so graphs with more than 2^31 edges round-trip through OffHeapGraph.map.
+     */
+    public static void write(Path path, LongDirectedGraph graph, int[] durations) throws IOException {
+        int n = graph.vertexCount();
+        if (durations.length != n) {
+            throw new IllegalArgumentException("Expected " + n + " durations, got " + durations.length);
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(0).putLong(graph.edgeCount());
+
+            for (int v = 0; v <= n; v++) {
+                ensureSpace(channel, buffer, Long.BYTES);
+                buffer.putLong(v < n ? graph.edgeStart(v) : graph.edgeCount());
+            }
+            for (int v = 0; v < n; v++) {
+                for (long e = graph.edgeStart(v), end = graph.edgeEnd(v); e < end; e++) {
+                    ensureSpace(channel, buffer, Integer.BYTES);
+                    buffer.putInt(graph.target(e));
+                }
+            }
+            for (int v = 0; v < n; v++) {
+                ensureSpace(channel, buffer, Integer.BYTES);
+                buffer.putInt(durations[v]);
+            }
+            flush(channel, buffer);
+        }
+    }
+
+    public static void write(Path path, TaskGraph taskGraph) throws IOException {
+        write(path, taskGraph.graph, taskGraph.durations);
+    }
+
+    /**
+     * Memory-map a binary dataset. Only the durations are copied onto the heap;
+     * the graph reads offsets and targets straight from the page cache.
+     * Section sizes are checked, edge contents are trusted as written by {@link #write}.
+     */
+    public static TaskGraph map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IOException("Not a binary graph file: " + path);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException("Not a binary graph file: " + path);
+            }
+            if (header.getInt(4) != VERSION) {
+                throw new IOException("Unsupported binary graph version " + header.getInt(4) + ": " + path);
+            }
+            int n = header.getInt(8);
+            long m = header.getLong(16);
+
+            long offsetsBytes = (n + 1L) * Long.BYTES;
+            long targetsBytes = m * Integer.BYTES;
+            long durationsBytes = (long) n * Integer.BYTES;
+            if (n < 0 || m < 0 || size != HEADER_BYTES + offsetsBytes + targetsBytes + durationsBytes) {
+                throw new IOException("Corrupt binary graph file: " + path);
+            }
+            if (offsetsBytes > Integer.MAX_VALUE || targetsBytes > Integer.MAX_VALUE) {
+                throw new IOException("Graph too large to map as a single section: " + path);
+            }
+
+            long position = HEADER_BYTES;
+            LongBuffer offsets = map(channel, position, offsetsBytes).asLongBuffer();
+            position += offsetsBytes;
+            IntBuffer targets = map(channel, position, targetsBytes).asIntBuffer();
+            position += targetsBytes;
+
+            int[] durations = new int[n];
+            map(channel, position, durationsBytes).asIntBuffer().get(durations);
+
+            String fileName = path.getFileName().toString();
+            String name = fileName.endsWith(".bin") ? fileName.substring(0, fileName.length() - 4) : fileName;
+            return new TaskGraph(name, new MappedGraph(n, (int) m, offsets, targets), durations);
+        }
+    }
+
+    /**
+     * Decode a binary dataset held in memory, e.g. a request body, into a heap CSRGraph.
+     * The buffer's byte order and position are ignored; the whole buffer must be the dataset.
+     */
+    public static TaskGraph read(ByteBuffer data, String name) throws IOException {
+        ByteBuffer buffer = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        buffer.position(0);
+        long size = buffer.limit();
+        if (size < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a binary graph");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported binary graph version " + buffer.getInt(4));
+        }
+        int n = buffer.getInt(8);
+        long m = buffer.getLong(16);
+        if (n < 0 || m < 0 || m > Integer.MAX_VALUE - 8
+                || size != HEADER_BYTES + (n + 1L) * Long.BYTES + m * Integer.BYTES + (long) n * Integer.BYTES) {
+            throw new IOException("Corrupt binary graph");
+        }
+
+        buffer.position(HEADER_BYTES);
+        int[] offsets = new int[n + 1];
+        for (int v = 0; v <= n; v++) {
+            long offset = buffer.getLong();
+            // Offsets start at 0, never decrease and end at the edge count
+            if ((v == 0 ? offset != 0 : offset < offsets[v - 1]) || offset > m || (v == n && offset != m)) {
+                throw new IOException("Corrupt binary graph: offset " + offset + " of vertex " + v);
+            }
+            offsets[v] = (int) offset;
+        }
+        int[] targets = new int[(int) m];
+        buffer.asIntBuffer().get(targets);
+        buffer.position(buffer.position() + targets.length * Integer.BYTES);
+        for (int target : targets) {
+            if (target < 0 || target >= n) {
+                throw new IOException("Corrupt binary graph: edge target " + target);
+            }
+        }
+        int[] durations = new int[n];
+        buffer.asIntBuffer().get(durations);
+        return new TaskGraph(name, CSRGraph.of(offsets, targets), durations);
+    }
+
+    private static ByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        return buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void ensureSpace(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush(channel, buffer);
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * DirectedGraph view over memory-mapped offsets and targets sections.
+     */
+    static final class MappedGraph implements DirectedGraph {
+        private final int vertexCount;
+        private final int edgeCount;
+        private final LongBuffer offsets;
+        private final IntBuffer targets;
+
+        MappedGraph(int vertexCount, int edgeCount, LongBuffer offsets, IntBuffer targets) {
+            this.vertexCount = vertexCount;
+            this.edgeCount = edgeCount;
+            this.offsets = offsets;
+            this.targets = targets;
+        }
+
+        @Override public int vertexCount() { return vertexCount; }
+        @Override public int edgeCount() { return edgeCount; }
+
+        @Override public int edgeStart(int v) { return (int) offsets.get(v); }
+        @Override public int edgeEnd(int v) { return (int) offsets.get(v + 1); }
+        @Override public int target(int edge) { return targets.get(edge); }
+
+        @Override
+        public String toString() {
+            return String.format("MappedGraph{vertices=%d, edges=%d}", vertexCount, edgeCount);
+        }
+    }
+}
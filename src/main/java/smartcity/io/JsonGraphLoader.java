@@ -0,0 +1,428 @@
+package smartcity.io;
+
+import smartcity.graph.CSRGraph;
+import smartcity.graph.IntList;
+import smartcity.graph.LongIdMap;
+import smartcity.graph.StringIdMap;
+import smartcity.model.TaskGraph;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Streaming reader for the data/*.json dataset format written by DatasetGenerator:
+ * <pre>
+ * { "name": "...", "nodes": n, "graph": { "0": [1, 2], ... }, "durations": { "0": 5, ... } }
+ * </pre>
+ * The file is tokenized through a fixed-size char buffer in a single pass and edges and
+ * durations go straight into primitive arrays, so memory use is proportional to the graph,
+ * not to the file. Unknown keys are skipped; tasks without a duration get 0.
+ *
+ * Task ids must be 0..n-1 unless a StringIdMap or LongIdMap is passed: then ids may be
+ * arbitrary strings or sparse 64-bit numbers (edge targets quoted or bare) and are interned as
+ * dense vertex ids in first-seen order, and "nodes" is ignored. Otherwise ids at or above the declared "nodes" are rejected,
+ * as are durations of tasks outside the graph, so a single large key cannot size the arrays.
+ */
+public class JsonGraphLoader {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Reader reader;
+    private final StringIdMap ids;
+    private final LongIdMap longIds;
+    private final int maxVertices;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int pos;
+    private int limit;
+    private long consumed;
+    private int nodes = -1;
+
+    private JsonGraphLoader(Reader reader, StringIdMap ids, LongIdMap longIds, int maxVertices) {
+        this.reader = reader;
+        this.ids = ids;
+        this.longIds = longIds;
+        this.maxVertices = maxVertices;
+    }
+
+    public static TaskGraph load(String filename) throws IOException {
+        return load(Paths.get(filename));
+    }
+
+    public static TaskGraph load(Path path) throws IOException {
+        String fileName = path.getFileName().toString();
+        String defaultName = fileName.endsWith(".json")
+                ? fileName.substring(0, fileName.length() - ".json".length())
+                : fileName;
+        try (Reader reader = new InputStreamReader(Files.newInputStream(path), StandardCharsets.UTF_8)) {
+            return load(reader, defaultName);
+        }
+    }
+
+    /**
+     * Parse a dataset from an open reader. The reader is not closed.
+     * @param defaultName Name used when the document has no "name" key
+     */
+    public static TaskGraph load(Reader reader, String defaultName) throws IOException {
+        return load(reader, defaultName, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Parse a dataset from an untrusted source, rejecting it if it declares or uses more than
+     * maxVertices tasks. The reader is not closed.
+     */
+    public static TaskGraph load(Reader reader, String defaultName, int maxVertices) throws IOException {
+        return new JsonGraphLoader(reader, null, null, maxVertices).parseDataset(defaultName);
+    }
+
+    /**
+     * Parse a dataset whose task ids are arbitrary strings, interning them into ids. Vertex v
+     * of the result is task ids.externalId(v); pass the same map to load several files over
+     * one id space.
+     */
+    public static TaskGraph load(Reader reader, String defaultName, StringIdMap ids) throws IOException {
+        return new JsonGraphLoader(reader, ids, null, Integer.MAX_VALUE).parseDataset(defaultName);
+    }
+
+    /**
+     * Parse a dataset whose task ids are sparse 64-bit numbers, such as database keys, interning
+     * them into ids. Vertex v of the result is task ids.externalId(v); results map back with
+     * CriticalPathResult.toExternal and SCCFinder.toExternal.
+     */
+    public static TaskGraph load(Reader reader, String defaultName, LongIdMap ids) throws IOException {
+        return new JsonGraphLoader(reader, null, ids, Integer.MAX_VALUE).parseDataset(defaultName);
+    }
+
+    private TaskGraph parseDataset(String defaultName) throws IOException {
+        String name = defaultName;
+        CSRGraph.Builder builder = new CSRGraph.Builder();
+        // Kept as pairs until the vertex count is known
+        IntList durationIds = new IntList();
+        IntList durationValues = new IntList();
+        boolean hasGraph = false;
+
+        expect('{');
+        if (peek() == '}') {
+            next();
+        } else {
+            do {
+                expect('"');
+                String key = readString();
+                expect(':');
+                switch (key) {
+                    case "name":
+                        if (peek() == '"') {
+                            next();
+                            name = readString();
+                        } else {
+                            skipValue();
+                        }
+                        break;
+                    case "nodes":
+                        nodes = readInt();
+                        if (nodes < 0 || nodes > maxVertices) {
+                            throw error("Node count " + nodes + " outside 0.." + maxVertices);
+                        }
+                        break;
+                    case "graph":
+                        readGraph(builder);
+                        hasGraph = true;
+                        break;
+                    case "durations":
+                        expect('{');
+                        if (peek() == '}') {
+                            next();
+                            break;
+                        }
+                        do {
+                            durationIds.add(readKey());
+                            expect(':');
+                            durationValues.add(readInt());
+                        } while (endOfMember('}'));
+                        break;
+                    default:
+                        skipValue();
+                }
+            } while (endOfMember('}'));
+        }
+        if (peek() != -1) {
+            throw error("Trailing content after dataset object");
+        }
+        if (!hasGraph) {
+            throw error("Dataset has no \"graph\" member");
+        }
+
+        if (interning()) {
+            builder.ensureVertexCount(ids != null ? ids.size() : longIds.size());
+        } else if (nodes >= 0) {
+            if (builder.vertexCount() > nodes) {
+                throw error("Task id " + (builder.vertexCount() - 1) + " outside the " + nodes + " declared nodes");
+            }
+            builder.ensureVertexCount(nodes);
+        }
+        int vertexCount = builder.vertexCount();
+        int[] durations = new int[vertexCount];
+        for (int i = 0; i < durationIds.size(); i++) {
+            int id = durationIds.get(i);
+            if (id >= vertexCount) {
+                throw error("Duration for task " + id + " outside the graph of " + vertexCount + " tasks");
+            }
+            durations[id] = durationValues.get(i);
+        }
+        return new TaskGraph(name, builder.build(), durations);
+    }
+
+    private void readGraph(CSRGraph.Builder builder) throws IOException {
+        expect('{');
+        if (peek() == '}') {
+            next();
+            return;
+        }
+        do {
+            int from = readKey();
+            builder.ensureVertexCount(from + 1);
+            expect(':');
+            expect('[');
+            if (peek() == ']') {
+                next();
+                continue;
+            }
+            do {
+                builder.addEdge(from, readTarget());
+            } while (endOfMember(']'));
+        } while (endOfMember('}'));
+    }
+
+    /**
+     * Consume the separator after an object member or array element.
+     * @return true if another element follows, false if the container was closed
+     */
+    private boolean endOfMember(char close) throws IOException {
+        int c = next();
+        if (c == ',') {
+            return true;
+        }
+        if (c == close) {
+            return false;
+        }
+        throw error("Expected ',' or '" + close + "'");
+    }
+
+    /** Vertex of an object key: the quoted id itself, or its interned id. */
+    private int readKey() throws IOException {
+        if (!interning()) {
+            return checkId(readQuotedInt());
+        }
+        expect('"');
+        return intern(readString());
+    }
+
+    /** Vertex of an edge target: a number, or with interning a quoted or bare id. */
+    private int readTarget() throws IOException {
+        if (!interning()) {
+            return checkId(readInt());
+        }
+        int c = next();
+        if (c == '"') {
+            return intern(readString());
+        }
+        StringBuilder sb = new StringBuilder();
+        while (c == '-' || (c >= '0' && c <= '9')) {
+            sb.append((char) c);
+            c = readRaw();
+        }
+        unread(c);
+        if (sb.length() == 0) {
+            throw error("Expected task id");
+        }
+        return intern(sb.toString());
+    }
+
+    private boolean interning() {
+        return ids != null || longIds != null;
+    }
+
+    private int intern(String id) throws IOException {
+        if (ids != null) {
+            return ids.intern(id);
+        }
+        try {
+            return longIds.intern(Long.parseLong(id));
+        } catch (NumberFormatException e) {
+            throw error("Expected a 64-bit task id, got \"" + id + "\"");
+        }
+    }
+
+    /** Reject negative ids and ids beyond the declared node count, or beyond maxVertices before it is known. */
+    private int checkId(int id) throws IOException {
+        int bound = nodes >= 0 ? nodes : maxVertices;
+        if (id < 0 || id >= bound) {
+            throw error("Task id " + id + " outside 0.." + (bound - 1));
+        }
+        return id;
+    }
+
+    private int readQuotedInt() throws IOException {
+        expect('"');
+        int value = readIntDigits(readRaw());
+        if (readRaw() != '"') {
+            throw error("Expected task id");
+        }
+        if (value < 0) {
+            throw error("Negative task id " + value);
+        }
+        return value;
+    }
+
+    private int readInt() throws IOException {
+        return readIntDigits(next());
+    }
+
+    private int readIntDigits(int first) throws IOException {
+        boolean negative = first == '-';
+        int c = negative ? readRaw() : first;
+        if (c < '0' || c > '9') {
+            throw error("Expected integer");
+        }
+        long value = 0;
+        while (c >= '0' && c <= '9') {
+            value = value * 10 + (c - '0');
+            if (value > Integer.MAX_VALUE) {
+                throw error("Integer out of range");
+            }
+            c = readRaw();
+        }
+        if (c == '.' || c == 'e' || c == 'E') {
+            throw error("Expected integer");
+        }
+        unread(c);
+        return (int) (negative ? -value : value);
+    }
+
+    /** Read the rest of a string whose opening quote was already consumed. */
+    private String readString() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            int c = readRaw();
+            if (c == '"') {
+                return sb.toString();
+            }
+            if (c == -1) {
+                throw error("Unterminated string");
+            }
+            if (c == '\\') {
+                c = readRaw();
+                switch (c) {
+                    case 'b': c = '\b'; break;
+                    case 'f': c = '\f'; break;
+                    case 'n': c = '\n'; break;
+                    case 'r': c = '\r'; break;
+                    case 't': c = '\t'; break;
+                    case 'u':
+                        int code = 0;
+                        for (int i = 0; i < 4; i++) {
+                            int digit = Character.digit(readRaw(), 16);
+                            if (digit < 0) {
+                                throw error("Invalid unicode escape");
+                            }
+                            code = code * 16 + digit;
+                        }
+                        c = code;
+                        break;
+                    case '"': case '\\': case '/':
+                        break;
+                    default:
+                        throw error("Invalid escape");
+                }
+            }
+            sb.append((char) c);
+        }
+    }
+
+    private void skipValue() throws IOException {
+        int c = next();
+        switch (c) {
+            case '"':
+                readString();
+                break;
+            case '{':
+                if (peek() == '}') {
+                    next();
+                    break;
+                }
+                do {
+                    expect('"');
+                    readString();
+                    expect(':');
+                    skipValue();
+                } while (endOfMember('}'));
+                break;
+            case '[':
+                if (peek() == ']') {
+                    next();
+                    break;
+                }
+                do {
+                    skipValue();
+                } while (endOfMember(']'));
+                break;
+            default:
+                if (c == -1) {
+                    throw error("Unexpected end of input");
+                }
+                // Number or literal: consume until a structural character
+                while (c != -1 && c != ',' && c != '}' && c != ']' && !Character.isWhitespace(c)) {
+                    c = readRaw();
+                }
+                unread(c);
+        }
+    }
+
+    private void expect(char expected) throws IOException {
+        if (next() != expected) {
+            throw error("Expected '" + expected + "'");
+        }
+    }
+
+    /** Next non-whitespace character, consumed. */
+    private int next() throws IOException {
+        int c;
+        do {
+            c = readRaw();
+        } while (c == ' ' || c == '\n' || c == '\r' || c == '\t');
+        return c;
+    }
+
+    /** Next non-whitespace character, left in the buffer. */
+    private int peek() throws IOException {
+        int c = next();
+        unread(c);
+        return c;
+    }
+
+    private int readRaw() throws IOException {
+        if (pos == limit) {
+            consumed += limit;
+            pos = 0;
+            limit = reader.read(buffer, 0, buffer.length);
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[pos++];
+    }
+
+    /** Push back the character just returned by readRaw(). */
+    private void unread(int c) {
+        if (c != -1) {
+            pos--;
+        }
+    }
+
+    private IOException error(String message) {
+        return new IOException(message + " at character " + (consumed + pos));
+    }
+}
@@ -0,0 +1,97 @@
+package smartcity.io;
+
+import smartcity.graph.DirectedGraph;
+import smartcity.model.TaskGraph;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Streams a dataset in the data/*.json format read by JsonGraphLoader, one vertex at a time
+ * through a buffered writer, so writing never holds more than the graph itself in memory.
+ */
+public final class JsonGraphWriter {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private JsonGraphWriter() {
+    }
+
+    public static void write(Path path, TaskGraph taskGraph) throws IOException {
+        write(path, taskGraph, Collections.emptyMap());
+    }
+
+    /**
+     * @param extraFields Additional top-level members written after "nodes", as raw JSON values
+     */
+    public static void write(Path path, TaskGraph taskGraph, Map<String, String> extraFields) throws IOException {
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(path),
+                StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            write(writer, taskGraph, extraFields);
+        }
+    }
+
+    /**
+     * Write a dataset to an open writer. The writer is not closed.
+     */
+    public static void write(Writer out, TaskGraph taskGraph, Map<String, String> extraFields) throws IOException {
+        DirectedGraph graph = taskGraph.graph;
+        int n = graph.vertexCount();
+
+        out.write("{\n");
+        out.write("  \"name\": \"");
+        writeEscaped(out, taskGraph.name);
+        out.write("\",\n");
+        out.write("  \"nodes\": " + n + ",\n");
+        for (Map.Entry<String, String> field : extraFields.entrySet()) {
+            out.write("  \"");
+            writeEscaped(out, field.getKey());
+            out.write("\": " + field.getValue() + ",\n");
+        }
+
+        out.write("  \"graph\": {\n");
+        for (int v = 0; v < n; v++) {
+            if (v > 0) out.write(",\n");
+            out.write("    \"");
+            out.write(Integer.toString(v));
+            out.write("\": [");
+            for (int e = graph.edgeStart(v), end = graph.edgeEnd(v); e < end; e++) {
+                if (e > graph.edgeStart(v)) out.write(", ");
+                out.write(Integer.toString(graph.target(e)));
+            }
+            out.write("]");
+        }
+        out.write("\n  },\n");
+
+        out.write("  \"durations\": {\n");
+        for (int v = 0; v < n; v++) {
+            if (v > 0) out.write(",\n");
+            out.write("    \"");
+            out.write(Integer.toString(v));
+            out.write("\": ");
+            out.write(Integer.toString(taskGraph.durations[v]));
+        }
+        out.write("\n  }\n");
+        out.write("}");
+    }
+
+    /** Write value with JSON string escapes, without the surrounding quotes. */
+    public static void writeEscaped(Writer out, String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.write('\\');
+                out.write(c);
+            } else if (c < 0x20) {
+                out.write(String.format("\\u%04x", (int) c));
+            } else {
+                out.write(c);
+            }
+        }
+    }
+}
@@ -7,12 +7,18 @@ public class Task {
     private String name;
     private int duration; // Node duration in time units
     private List<Integer> dependencies;
+    private Runnable action; // Work executed by ParallelTaskRunner, may be null
 
     public Task(int id, String name, int duration, List<Integer> dependencies) {
+        this(id, name, duration, dependencies, null);
+    }
+
+    public Task(int id, String name, int duration, List<Integer> dependencies, Runnable action) {
         this.id = id;
         this.name = name;
         this.duration = duration;
         this.dependencies = dependencies;
+        this.action = action;
     }
 
     public int getId() { return id; }
@@ -27,6 +33,9 @@ public class Task {
     public List<Integer> getDependencies() { return dependencies; }
     public void setDependencies(List<Integer> dependencies) { this.dependencies = dependencies; }
 
+    public Runnable getAction() { return action; }
+    public void setAction(Runnable action) { this.action = action; }
+
     @Override
     public String toString() {
         return String.format("Task{id=%d, name='%s', duration=%d, dependencies=%s}",
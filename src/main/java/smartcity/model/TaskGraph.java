@@ -0,0 +1,27 @@
+package smartcity.model;
+
+import smartcity.graph.DirectedGraph;
+
+/**
+ * A dependency graph together with the duration of every task.
+ */
+public class TaskGraph {
+    public final String name;
+    public final DirectedGraph graph;
+    public final int[] durations;
+
+    public TaskGraph(String name, DirectedGraph graph, int[] durations) {
+        if (durations.length != graph.vertexCount()) {
+            throw new IllegalArgumentException("Expected " + graph.vertexCount() + " durations, got " + durations.length);
+        }
+        this.name = name;
+        this.graph = graph;
+        this.durations = durations;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TaskGraph{name='%s', vertices=%d, edges=%d}",
+                name, graph.vertexCount(), graph.edgeCount());
+    }
+}
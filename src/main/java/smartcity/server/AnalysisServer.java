@@ -0,0 +1,339 @@
+package smartcity.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import smartcity.graph.DirectedGraph;
+import smartcity.graph.Metrics;
+import smartcity.graph.cache.AnalysisCache;
+import smartcity.graph.cache.StructuralAnalysis;
+import smartcity.graph.dagsp.DAGShortestPath;
+import smartcity.graph.scc.Condensation;
+import smartcity.io.BinaryGraphFormat;
+import smartcity.io.JsonGraphLoader;
+import smartcity.model.TaskGraph;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Long-running HTTP front end for the analyses, bound to the loopback interface.
+ *
+ * Graphs are uploaded once and stay resident, so a query costs only the analysis, and the
+ * structural part of that comes from an AnalysisCache after the first request:
+ * <pre>
+ * PUT    /graphs/{name}                upload a dataset (JSON, or the binary format)
+ * GET    /graphs                       names of resident graphs
+ * DELETE /graphs/{name}                drop a graph
+ * GET    /graphs/{name}/scc            strongly connected components
+ * GET    /graphs/{name}/topo           topological order (of the condensation if cyclic)
+ * GET    /graphs/{name}/critical-path  critical path
+ * POST   /analyze                      all three for an uploaded dataset, without keeping it
+ * </pre>
+ * The binary format is recognised by its magic number, so no content type is needed.
+ * Requests run on a fixed pool; at most maxGraphs graphs stay resident and the least recently
+ * used is dropped first. Uploads above maxBodyBytes are refused with 413, and a JSON upload may
+ * not use more task ids than it has bytes, so a small body cannot make the server allocate
+ * arrays for billions of tasks. Responses are JSON; errors carry an "error" member.
+ */
+public class AnalysisServer {
+    public static final int DEFAULT_MAX_BODY_BYTES = 64 << 20;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final AnalysisCache cache;
+    private final int maxGraphs;
+    private final int maxBodyBytes;
+    private final LinkedHashMap<String, TaskGraph> graphs = new LinkedHashMap<>(16, 0.75f, true);
+
+    public AnalysisServer(int port, int threads, int maxGraphs, long cacheBytes) throws IOException {
+        this(port, threads, maxGraphs, cacheBytes, DEFAULT_MAX_BODY_BYTES);
+    }
+
+    /**
+     * @param port Port on 127.0.0.1, or 0 for any free port
+     * @param cacheBytes Size bound of the structural result cache
+     * @param maxBodyBytes Largest accepted upload
+     */
+    public AnalysisServer(int port, int threads, int maxGraphs, long cacheBytes, int maxBodyBytes) throws IOException {
+        if (threads < 1 || maxGraphs < 1) {
+            throw new IllegalArgumentException("Threads and resident graph limit must be positive");
+        }
+        if (maxBodyBytes < 1 || maxBodyBytes > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Body limit must be in 1.." + (Integer.MAX_VALUE - 8) + ": " + maxBodyBytes);
+        }
+        this.maxGraphs = maxGraphs;
+        this.maxBodyBytes = maxBodyBytes;
+        this.cache = new AnalysisCache(cacheBytes, Metrics.disabled());
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.executor = Executors.newFixedThreadPool(threads);
+        server.setExecutor(executor);
+        server.createContext("/graphs", this::handleGraphs);
+        server.createContext("/analyze", this::handleAnalyze);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /** Stop accepting requests, wait up to delaySeconds for running ones, then release threads. */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdownNow();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /** Make a graph resident, as if uploaded under its name. */
+    public void put(TaskGraph taskGraph) {
+        synchronized (graphs) {
+            graphs.put(taskGraph.name, taskGraph);
+            Iterator<String> eldest = graphs.keySet().iterator();
+            while (graphs.size() > maxGraphs) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+    }
+
+    public AnalysisCache getCache() {
+        return cache;
+    }
+
+    private TaskGraph get(String name) {
+        synchronized (graphs) {
+            return graphs.get(name);
+        }
+    }
+
+    private void handleGraphs(HttpExchange exchange) throws IOException {
+        try {
+            // /graphs, /graphs/{name} or /graphs/{name}/{analysis}
+            String[] parts = exchange.getRequestURI().getPath().split("/");
+            String method = exchange.getRequestMethod();
+            // Contexts match by prefix, so /graphsfoo arrives here too
+            if (parts.length < 2 || !parts[1].equals("graphs")) {
+                throw new RequestException(404, "No such resource");
+            }
+            if (parts.length == 2) {
+                requireMethod(method, "GET");
+                List<String> names;
+                synchronized (graphs) {
+                    names = new ArrayList<>(graphs.keySet());
+                }
+                StringBuilder json = new StringBuilder("{\"graphs\": [");
+                for (int i = 0; i < names.size(); i++) {
+                    if (i > 0) json.append(", ");
+                    appendString(json, names.get(i));
+                }
+                respond(exchange, 200, json.append("]}").toString());
+                return;
+            }
+            if (parts.length < 3 || parts.length > 4) {
+                throw new RequestException(404, "No such resource");
+            }
+            String name = parts[2];
+            if (parts.length == 3) {
+                switch (method) {
+                    case "PUT":
+                        TaskGraph uploaded = readGraph(exchange, name);
+                        put(uploaded);
+                        respond(exchange, 201, summary(uploaded));
+                        return;
+                    case "DELETE":
+                        synchronized (graphs) {
+                            if (graphs.remove(name) == null) {
+                                throw new RequestException(404, "No graph named " + name);
+                            }
+                        }
+                        respond(exchange, 200, "{\"deleted\": " + quote(name) + "}");
+                        return;
+                    case "GET":
+                        respond(exchange, 200, summary(resident(name)));
+                        return;
+                    default:
+                        throw new RequestException(405, "Method " + method + " not allowed");
+                }
+            }
+            requireMethod(method, "GET");
+            TaskGraph taskGraph = resident(name);
+            switch (parts[3]) {
+                case "scc":
+                    respond(exchange, 200, "{" + sccJson(cache.structure(taskGraph.graph)) + "}");
+                    return;
+                case "topo":
+                    respond(exchange, 200, "{" + topoJson(cache.structure(taskGraph.graph)) + "}");
+                    return;
+                case "critical-path":
+                    respond(exchange, 200, "{" + criticalPathJson(taskGraph) + "}");
+                    return;
+                default:
+                    throw new RequestException(404, "Unknown analysis " + parts[3]);
+            }
+        } catch (RequestException e) {
+            respond(exchange, e.status, "{\"error\": " + quote(e.getMessage()) + "}");
+        } catch (RuntimeException e) {
+            respond(exchange, 500, "{\"error\": " + quote(String.valueOf(e)) + "}");
+        }
+    }
+
+    private void handleAnalyze(HttpExchange exchange) throws IOException {
+        try {
+            requireMethod(exchange.getRequestMethod(), "POST");
+            TaskGraph taskGraph = readGraph(exchange, "request");
+            StructuralAnalysis structure = cache.structure(taskGraph.graph);
+            respond(exchange, 200, "{\"name\": " + quote(taskGraph.name) + ", "
+                    + sccJson(structure) + ", " + topoJson(structure) + ", " + criticalPathJson(taskGraph) + "}");
+        } catch (RequestException e) {
+            respond(exchange, e.status, "{\"error\": " + quote(e.getMessage()) + "}");
+        } catch (RuntimeException e) {
+            respond(exchange, 500, "{\"error\": " + quote(String.valueOf(e)) + "}");
+        }
+    }
+
+    private TaskGraph resident(String name) throws RequestException {
+        TaskGraph taskGraph = get(name);
+        if (taskGraph == null) {
+            throw new RequestException(404, "No graph named " + name);
+        }
+        return taskGraph;
+    }
+
+    private static void requireMethod(String method, String expected) throws RequestException {
+        if (!expected.equals(method)) {
+            throw new RequestException(405, "Method " + method + " not allowed");
+        }
+    }
+
+    private TaskGraph readGraph(HttpExchange exchange, String name) throws IOException, RequestException {
+        if (declaredLength(exchange) > maxBodyBytes) {
+            throw new RequestException(413, "Request body exceeds " + maxBodyBytes + " bytes");
+        }
+        // One byte more than allowed tells an oversized chunked body from one exactly at the limit
+        byte[] body = exchange.getRequestBody().readNBytes(maxBodyBytes + 1);
+        if (body.length > maxBodyBytes) {
+            throw new RequestException(413, "Request body exceeds " + maxBodyBytes + " bytes");
+        }
+        try {
+            if (body.length >= 4 && ByteBuffer.wrap(body).order(java.nio.ByteOrder.LITTLE_ENDIAN).getInt(0)
+                    == BinaryGraphFormat.MAGIC) {
+                return BinaryGraphFormat.read(ByteBuffer.wrap(body), name);
+            }
+            TaskGraph parsed = JsonGraphLoader.load(new InputStreamReader(new ByteArrayInputStream(body),
+                    StandardCharsets.UTF_8), name, body.length);
+            // The path decides the name, whatever the document says
+            return new TaskGraph(name, parsed.graph, parsed.durations);
+        } catch (IOException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            // Builders reject out-of-range ids with unchecked exceptions
+            throw new RequestException(400, "Invalid graph: " + e.getMessage());
+        }
+    }
+
+    /** Content-Length of the request, or -1 if absent or unparsable (chunked uploads have none). */
+    private static long declaredLength(HttpExchange exchange) {
+        String length = exchange.getRequestHeaders().getFirst("Content-Length");
+        try {
+            return length == null ? -1 : Long.parseLong(length.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String summary(TaskGraph taskGraph) {
+        return "{\"name\": " + quote(taskGraph.name) + ", \"vertices\": " + taskGraph.graph.vertexCount()
+                + ", \"edges\": " + taskGraph.graph.edgeCount() + "}";
+    }
+
+    private static String sccJson(StructuralAnalysis structure) {
+        Condensation condensation = structure.condensation;
+        StringBuilder json = new StringBuilder("\"components\": [");
+        for (int c = 0; c < condensation.componentCount(); c++) {
+            if (c > 0) json.append(", ");
+            json.append('[');
+            for (int i = condensation.memberOffsets[c]; i < condensation.memberOffsets[c + 1]; i++) {
+                if (i > condensation.memberOffsets[c]) json.append(", ");
+                json.append(condensation.members[i]);
+            }
+            json.append(']');
+        }
+        return json.append(']').toString();
+    }
+
+    private static String topoJson(StructuralAnalysis structure) {
+        StringBuilder json = new StringBuilder("\"acyclic\": ").append(structure.isAcyclic());
+        if (structure.isAcyclic()) {
+            appendArray(json.append(", \"order\": "), structure.vertexOrder);
+        } else {
+            appendArray(json.append(", \"componentOrder\": "), structure.componentOrder);
+        }
+        return json.toString();
+    }
+
+    private String criticalPathJson(TaskGraph taskGraph) {
+        DAGShortestPath.CriticalPathResult result = cache.criticalPath(taskGraph.graph, taskGraph.durations);
+        StringBuilder json = new StringBuilder("\"criticalPathLength\": ").append(result.length);
+        appendArray(json.append(", \"criticalPath\": "), result.nodes);
+        if (result instanceof DAGShortestPath.CondensedPathResult) {
+            appendArray(json.append(", \"criticalComponents\": "),
+                    ((DAGShortestPath.CondensedPathResult) result).componentNodes);
+        }
+        return json.toString();
+    }
+
+    private static void appendArray(StringBuilder json, int[] values) {
+        json.append('[');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) json.append(", ");
+            json.append(values[i]);
+        }
+        json.append(']');
+    }
+
+    private static String quote(String value) {
+        return appendString(new StringBuilder(), value).toString();
+    }
+
+    private static StringBuilder appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"');
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static final class RequestException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        RequestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
@@ -1,8 +1,30 @@
+import smartcity.batch.BatchPipeline;
 import smartcity.graph.*;
+import smartcity.graph.cache.AnalysisCache;
+import smartcity.graph.cache.GraphFingerprint;
+import smartcity.graph.cache.StructuralAnalysis;
+import smartcity.graph.dynamic.DynamicDependencyGraph;
+import smartcity.graph.reach.ReachabilityIndex;
+import smartcity.graph.schedule.CrewSchedule;
+import smartcity.graph.schedule.ListScheduler;
+import smartcity.graph.schedule.ParallelTaskRunner;
+import smartcity.graph.scc.Condensation;
+import smartcity.graph.scc.LongTarjanSCC;
+import smartcity.graph.scc.ParallelSCC;
 import smartcity.graph.scc.TarjanSCC;
+import smartcity.graph.topo.ParallelTopologicalSort;
 import smartcity.graph.topo.TopologicalSort;
 import smartcity.graph.dagsp.DAGShortestPath;
+import smartcity.graph.dagsp.IncrementalCriticalPath;
+import smartcity.graph.dagsp.MultiSourceShortestPaths;
+import smartcity.generator.GraphGenerators;
+import smartcity.io.BinaryGraphFormat;
+import smartcity.io.JsonGraphLoader;
+import smartcity.io.JsonGraphWriter;
+import smartcity.model.TaskGraph;
+import smartcity.server.AnalysisServer;
 
+import java.io.StringReader;
 import java.util.*;
 
 class TestAssert {
@@ -106,6 +128,1169 @@ public class GraphAlgorithmsTest {
         System.out.println("✓ PASSED");
     }
 
+    public void testCSRGraphAlgorithms() {
+        System.out.println("=== Test CSR Graph Algorithms ===");
+        Map<Integer, List<Integer>> graph = new HashMap<>();
+        graph.put(0, Arrays.asList(1, 2));
+        graph.put(1, Arrays.asList(3));
+        graph.put(2, Arrays.asList(3));
+        graph.put(3, new ArrayList<>());
+
+        CSRGraph csr = new CSRGraph.Builder(4)
+                .addEdge(0, 1).addEdge(1, 3).addEdge(0, 2).addEdge(2, 3)
+                .build();
+        TestAssert.assertEquals(4, csr.vertexCount(), "CSR should have 4 vertices");
+        TestAssert.assertEquals(4, csr.edgeCount(), "CSR should have 4 edges");
+        TestAssert.assertTrue(csr.toAdjacencyMap().equals(graph), "Builder should match adjacency map");
+        TestAssert.assertTrue(CSRGraph.fromAdjacencyMap(graph).toAdjacencyMap().equals(graph),
+                "Adapter should round-trip adjacency map");
+
+        int[] order = new TopologicalSort(metrics).kahnTopologicalSort(csr);
+        TestAssert.assertTrue(Arrays.equals(new int[]{0, 1, 2, 3}, order), "CSR topological order should be [0, 1, 2, 3]");
+
+        int[] durations = {2, 3, 1, 4};
+        DAGShortestPath.CriticalPathResult result =
+                new DAGShortestPath(metrics).findCriticalPath(csr, durations, order);
+        TestAssert.assertEquals(9, result.length, "CSR critical path length should be 9");
+        TestAssert.assertTrue(result.path.equals(Arrays.asList(0, 1, 3)), "CSR critical path should be [0, 1, 3]");
+
+        List<List<Integer>> sccs = new TarjanSCC(csr, metrics).findSCCs();
+        TestAssert.assertEquals(4, sccs.size(), "DAG should have 4 singleton SCCs");
+        System.out.println("✓ PASSED");
+    }
+
+    public void testSCCDeepChain() {
+        System.out.println("=== Test SCC Deep Chain ===");
+        int n = 200_000;
+        CSRGraph.Builder builder = new CSRGraph.Builder(n + 1, n + 1);
+        for (int i = 0; i < n - 1; i++) {
+            builder.addEdge(i, i + 1);
+        }
+        builder.addEdge(n - 1, 0); // Close the chain into one cycle
+        builder.addEdge(n - 1, n);
+
+        TarjanSCC tarjan = new TarjanSCC(builder.build(), metrics);
+        int count = tarjan.findComponents();
+
+        TestAssert.assertEquals(2, count, "Should find the chain cycle and the tail vertex");
+        TestAssert.assertEquals(0, tarjan.getComponentIds()[n], "Tail vertex should complete first");
+        TestAssert.assertEquals(1, tarjan.getComponentIds()[0], "Chain should form the second component");
+        TestAssert.assertEquals(n, tarjan.getComponentOffsets()[2] - tarjan.getComponentOffsets()[1],
+                "Chain component should contain every chain vertex");
+        System.out.println("✓ PASSED");
+    }
+
+    public void testJsonGraphLoader() throws Exception {
+        System.out.println("=== Test JSON Graph Loader ===");
+        String json = "{\n  \"name\": \"tiny\\u0021\",\n  \"nodes\": 5,\n  \"density\": 0.3,\n"
+                + "  \"meta\": {\"tags\": [\"a\", {\"b\": null}], \"ok\": true},\n"
+                + "  \"graph\": {\"0\": [1, 2], \"1\": [3], \"2\": [3], \"3\": []},\n"
+                + "  \"durations\": {\"3\": 4, \"0\": 2, \"1\": 3, \"2\": 1}\n}";
+
+        TaskGraph taskGraph = JsonGraphLoader.load(new StringReader(json), "fallback");
+
+        TestAssert.assertTrue("tiny!".equals(taskGraph.name), "Name should be parsed with escapes");
+        TestAssert.assertEquals(5, taskGraph.graph.vertexCount(), "Node count should cover isolated task 4");
+        TestAssert.assertEquals(4, taskGraph.graph.edgeCount(), "Should load 4 edges");
+        TestAssert.assertTrue(Arrays.equals(new int[]{2, 3, 1, 4, 0}, taskGraph.durations),
+                "Durations should be indexed by task id");
+        TestAssert.assertEquals(2, taskGraph.graph.target(taskGraph.graph.edgeStart(0) + 1),
+                "Successor order should be preserved");
+
+        String[] malformed = {"{\"graph\": {\"0\": [1,]}}", "{\"nodes\": 2, \"graph\": {\"0\": [-1]}}", "{\"foo\": 1}"};
+        for (String document : malformed) {
+            boolean rejected = false;
+            try {
+                JsonGraphLoader.load(new StringReader(document), "broken");
+            } catch (java.io.IOException e) {
+                rejected = true;
+            }
+            TestAssert.assertTrue(rejected, "Malformed input should be rejected: " + document);
+        }
+        System.out.println("✓ PASSED");
+    }
+
+    public void testBinaryGraphFormat() throws Exception {
+        System.out.println("=== Test Binary Graph Format ===");
+        CSRGraph csr = new CSRGraph.Builder(5)
+                .addEdge(0, 1).addEdge(0, 2).addEdge(1, 3).addEdge(2, 3).addEdge(3, 4)
+                .build();
+        int[] durations = {2, 3, 1, 4, 2};
+
+        java.nio.file.Path file = java.nio.file.Files.createTempFile("graph", ".bin");
+        try {
+            BinaryGraphFormat.write(file, csr, durations);
+            TaskGraph mapped = BinaryGraphFormat.map(file);
+
+            TestAssert.assertEquals(5, mapped.graph.vertexCount(), "Mapped graph should have 5 vertices");
+            TestAssert.assertEquals(5, mapped.graph.edgeCount(), "Mapped graph should have 5 edges");
+            TestAssert.assertTrue(Arrays.equals(durations, mapped.durations), "Durations should round-trip");
+
+            int[] order = new TopologicalSort(metrics).kahnTopologicalSort(mapped.graph);
+            TestAssert.assertTrue(Arrays.equals(new int[]{0, 1, 2, 3, 4}, order), "Mapped topological order");
+            DAGShortestPath.CriticalPathResult result =
+                    new DAGShortestPath(metrics).findCriticalPath(mapped.graph, mapped.durations, order);
+            TestAssert.assertEquals(11, result.length, "Mapped critical path length should be 11");
+            TestAssert.assertEquals(5, new TarjanSCC(mapped.graph, metrics).findComponents(),
+                    "Mapped DAG should have 5 SCCs");
+
+            java.nio.ByteBuffer bytes = java.nio.ByteBuffer.wrap(java.nio.file.Files.readAllBytes(file))
+                    .order(java.nio.ByteOrder.LITTLE_ENDIAN);
+            TestAssert.assertEquals(5, BinaryGraphFormat.read(bytes, "read").graph.edgeCount(), "Read graph edges");
+            bytes.putLong(BinaryGraphFormat.HEADER_BYTES, 1); // offsets[0] must be 0
+            boolean rejected = false;
+            try {
+                BinaryGraphFormat.read(bytes, "corrupt");
+            } catch (java.io.IOException e) {
+                rejected = true;
+            }
+            TestAssert.assertTrue(rejected, "A nonzero first offset should be rejected");
+        } finally {
+            java.nio.file.Files.deleteIfExists(file);
+        }
+        System.out.println("✓ PASSED");
+    }
+
+    public void testParallelSCCMatchesTarjan() {
+        System.out.println("=== Test Parallel SCC Matches Tarjan ===");
+        Random random = new Random(7);
+        int n = 20_000;
+        CSRGraph.Builder builder = new CSRGraph.Builder(n, 3 * n);
+        for (int i = 0; i < 2 * n; i++) {
+            builder.addEdge(random.nextInt(n), random.nextInt(n));
+        }
+        for (int i = 0; i < 5_000; i++) {
+            builder.addEdge(i, (i + 1) % 5_000); // Plant one large cycle
+        }
+        CSRGraph graph = builder.build();
+
+        TarjanSCC tarjan = new TarjanSCC(graph, metrics);
+        int expected = tarjan.findComponents();
+        ParallelSCC parallel = new ParallelSCC(graph, metrics,
+                java.util.concurrent.ForkJoinPool.commonPool(), 0, 16);
+        int actual = parallel.findComponents();
+
+        TestAssert.assertEquals(expected, actual, "Parallel SCC should find the same number of components");
+        int[] tarjanIds = tarjan.getComponentIds();
+        int[] parallelIds = parallel.getComponentIds();
+        int[] mapping = new int[expected];
+        Arrays.fill(mapping, -1);
+        for (int v = 0; v < n; v++) {
+            if (mapping[tarjanIds[v]] == -1) {
+                mapping[tarjanIds[v]] = parallelIds[v];
+            }
+            TestAssert.assertEquals(mapping[tarjanIds[v]], parallelIds[v], "Vertex " + v + " in the wrong component");
+        }
+
+        Set<Set<Integer>> small = new HashSet<>();
+        Map<Integer, List<Integer>> cyclic = new HashMap<>();
+        cyclic.put(0, Arrays.asList(1));
+        cyclic.put(1, Arrays.asList(2));
+        cyclic.put(2, Arrays.asList(0));
+        cyclic.put(3, Arrays.asList(4));
+        cyclic.put(4, new ArrayList<>());
+        for (List<Integer> scc : new ParallelSCC(CSRGraph.fromAdjacencyMap(cyclic), metrics).findSCCs()) {
+            small.add(new HashSet<>(scc));
+        }
+        TestAssert.assertTrue(small.contains(new HashSet<>(Arrays.asList(0, 1, 2))),
+                "Small graphs should fall back to Tarjan");
+        System.out.println("✓ PASSED");
+    }
+
+    public void testParallelSCCChainOfSmallComponents() {
+        System.out.println("=== Test Parallel SCC Chain Of Small Components ===");
+        // 2i <-> 2i+1 -> 2i+2: every split peels one 2-cycle off a chain
+        int n = 100_000;
+        CSRGraph.Builder chain = new CSRGraph.Builder(n, 2 * n);
+        for (int i = 0; i + 1 < n; i += 2) {
+            chain.addEdge(i, i + 1);
+            chain.addEdge(i + 1, i);
+            if (i + 2 < n) {
+                chain.addEdge(i + 1, i + 2);
+            }
+        }
+        ParallelSCC parallel = new ParallelSCC(chain.build(), metrics);
+        TestAssert.assertEquals(n / 2, parallel.findComponents(), "Chain should have one SCC per 2-cycle");
+        for (int v = 0; v < n; v++) {
+            TestAssert.assertEquals(parallel.getComponentIds()[v & ~1], parallel.getComponentIds()[v],
+                    "Vertex " + v + " should share a component with its partner");
+        }
+
+        // Disconnected 2-cycles: every split leaves all other cycles unreached
+        int m = 40_000;
+        CSRGraph.Builder pairs = new CSRGraph.Builder(m, m);
+        for (int i = 0; i < m; i += 2) {
+            pairs.addEdge(i, i + 1);
+            pairs.addEdge(i + 1, i);
+        }
+        ParallelSCC fine = new ParallelSCC(pairs.build(), metrics,
+                java.util.concurrent.ForkJoinPool.commonPool(), 0, 1);
+        TestAssert.assertEquals(m / 2, fine.findComponents(), "Disconnected pairs should each be one SCC");
+        System.out.println("✓ PASSED");
+    }
+
+    public void testCondensation() {
+        System.out.println("=== Test Condensation ===");
+        Map<Integer, List<Integer>> graph = new HashMap<>();
+        graph.put(0, Arrays.asList(1, 3));
+        graph.put(1, Arrays.asList(2, 3));
+        graph.put(2, Arrays.asList(0, 3, 4));
+        graph.put(3, Arrays.asList(4));
+        graph.put(4, new ArrayList<>());
+        int[] durations = {1, 2, 3, 4, 5};
+
+        TarjanSCC tarjan = new TarjanSCC(graph, metrics);
+        TestAssert.assertEquals(3, tarjan.findComponents(), "Should find 3 SCCs");
+        Condensation condensation = tarjan.buildCondensation(durations);
+
+        int cycle = condensation.componentIds[0];
+        int middle = condensation.componentIds[3];
+        int sink = condensation.componentIds[4];
+        TestAssert.assertEquals(3, condensation.componentSizes[cycle], "Cycle component should have 3 tasks");
+        TestAssert.assertEquals(6, condensation.componentDurations[cycle], "Cycle durations should be summed");
+        TestAssert.assertEquals(2, condensation.dag.outDegree(cycle), "Parallel edges should be merged");
+        TestAssert.assertEquals(3, condensation.dag.edgeCount(), "Condensation should have 3 edges");
+        TestAssert.assertTrue(condensation.dag.toAdjacencyMap().get(middle).equals(Arrays.asList(sink)),
+                "Middle component should lead to the sink");
+        TestAssert.assertTrue(tarjan.buildCondensationGraph().equals(condensation.dag.toAdjacencyMap()),
+                "Map view should match the CSR condensation");
+        System.out.println("✓ PASSED");
+    }
+
+    public void testParallelTopologicalLevels() {
+        System.out.println("=== Test Parallel Topological Levels ===");
+        Random random = new Random(11);
+        int n = 50_000;
+        CSRGraph.Builder builder = new CSRGraph.Builder(n, 4 * n);
+        for (int i = 0; i < 4 * n; i++) {
+            int a = random.nextInt(n);
+            int b = random.nextInt(n);
+            if (a != b) {
+                builder.addEdge(Math.min(a, b), Math.max(a, b));
+            }
+        }
+        CSRGraph graph = builder.build();
+
+        ParallelTopologicalSort.LevelOrder result = new ParallelTopologicalSort(metrics).sort(graph);
+        TestAssert.assertTrue(result.isComplete(), "DAG should be fully ordered");
+
+        int[] expectedLevel = new int[n];
+        for (int v = 0; v < n; v++) {
+            for (int e = graph.edgeStart(v); e < graph.edgeEnd(v); e++) {
+                int w = graph.target(e);
+                expectedLevel[w] = Math.max(expectedLevel[w], expectedLevel[v] + 1);
+            }
+        }
+        int[] position = new int[n];
+        for (int i = 0; i < n; i++) {
+            position[result.order[i]] = i;
+        }
+        for (int v = 0; v < n; v++) {
+            TestAssert.assertEquals(expectedLevel[v], result.level[v], "Level of vertex " + v);
+            for (int e = graph.edgeStart(v); e < graph.edgeEnd(v); e++) {
+                TestAssert.assertTrue(position[v] < position[graph.target(e)], "Edge order violated at " + v);
+            }
+        }
+        for (int k = 0; k < result.levelCount(); k++) {
+            for (int i = result.levelOffsets[k]; i < result.levelOffsets[k + 1]; i++) {
+                TestAssert.assertEquals(k, result.level[result.order[i]], "Vertex placed in the wrong level");
+            }
+        }
+        System.out.println("✓ PASSED");
+    }
+
+    public void testParallelCriticalPath() {
+        System.out.println("=== Test Parallel Critical Path ===");
+        Random random = new Random(5);
+        int n = 40_000;
+        CSRGraph.Builder builder = new CSRGraph.Builder(n, 3 * n);
+        for (int i = 0; i < 3 * n; i++) {
+            int a = random.nextInt(n);
+            int b = random.nextInt(n);
+            if (a != b) {
+                builder.addEdge(Math.min(a, b), Math.max(a, b));
+            }
+        }
+        CSRGraph graph = builder.build();
+        int[] durations = new int[n];
+        for (int v = 0; v < n; v++) {
+            durations[v] = random.nextInt(3); // Small range forces ties
+        }
+
+        ParallelTopologicalSort.LevelOrder levels = new ParallelTopologicalSort(metrics).sort(graph);
+        DAGShortestPath dagsp = new DAGShortestPath(metrics);
+        DAGShortestPath.CriticalPathResult expected = dagsp.findCriticalPath(graph, durations, levels.order);
+        DAGShortestPath.CriticalPathResult actual = dagsp.findCriticalPathParallel(CSRGraph.transpose(graph),
+                durations, levels, java.util.concurrent.ForkJoinPool.commonPool());
+
+        TestAssert.assertEquals(expected.length, actual.length, "Parallel critical path length");
+        TestAssert.assertTrue(expected.path.equals(actual.path), "Parallel critical path should match sequential");
+        TestAssert.assertEquals(expected.length, dagsp.findCriticalPathParallel(graph, durations).length,
+                "Convenience overload should agree");
+        System.out.println("✓ PASSED");
+    }
+
+    public void testDynamicDependencyGraph() {
+        System.out.println("=== Test Dynamic Dependency Graph ===");
+        Random random = new Random(3);
+        int n = 60;
+        DynamicDependencyGraph dynamic = new DynamicDependencyGraph(n, metrics);
+        List<int[]> edges = new ArrayList<>();
+
+        for (int step = 0; step < 2_000; step++) {
+            if (edges.isEmpty() || random.nextInt(3) > 0) {
+                int[] edge = {random.nextInt(n), random.nextInt(n)};
+                edges.add(edge);
+                dynamic.addEdge(edge[0], edge[1]);
+            } else {
+                int[] edge = edges.remove(random.nextInt(edges.size()));
+                TestAssert.assertTrue(dynamic.removeEdge(edge[0], edge[1]), "Existing edge should be removed");
+            }
+
+            CSRGraph.Builder builder = new CSRGraph.Builder(n);
+            for (int[] edge : edges) {
+                builder.addEdge(edge[0], edge[1]);
+            }
+            TarjanSCC batch = new TarjanSCC(builder.build(), metrics);
+            TestAssert.assertEquals(batch.findComponents(), dynamic.findComponents(), "Component count at step " + step);
+            for (int[] edge : edges) {
+                boolean same = batch.getComponentIds()[edge[0]] == batch.getComponentIds()[edge[1]];
+                TestAssert.assertTrue(same == dynamic.stronglyConnected(edge[0], edge[1]),
+                        "Partition mismatch at step " + step);
+                TestAssert.assertTrue(same || dynamic.precedes(edge[0], edge[1]),
+                        "Topological order violated at step " + step);
+            }
+        }
+
+        int[] order = new TopologicalSort(metrics).kahnTopologicalSort(dynamic.buildCondensation(null).dag);
+        TestAssert.assertEquals(dynamic.getComponentCount(), order.length, "Condensation should be acyclic");
+        TestAssert.assertEquals(n, dynamic.taskOrder().length, "Task order should cover every vertex");
+        System.out.println("✓ PASSED");
+    }
+
+    public void testIncrementalCriticalPath() {
+        System.out.println("=== Test Incremental Critical Path ===");
+        Random random = new Random(11);
+        int n = 2_000;
+        CSRGraph.Builder builder = new CSRGraph.Builder(n, 4 * n);
+        for (int i = 0; i < 4 * n; i++) {
+            int a = random.nextInt(n);
+            int b = random.nextInt(n);
+            if (a != b) {
+                builder.addEdge(Math.min(a, b), Math.max(a, b));
+            }
+        }
+        CSRGraph graph = builder.build();
+        int[] durations = new int[n];
+        for (int v = 0; v < n; v++) {
+            durations[v] = random.nextInt(4);
+        }
+
+        int[] topoOrder = new TopologicalSort(metrics).kahnTopologicalSort(graph);
+        DAGShortestPath dagsp = new DAGShortestPath(metrics);
+        IncrementalCriticalPath incremental = new IncrementalCriticalPath(graph, durations, topoOrder, metrics);
+        for (int step = 0; step < 300; step++) {
+            int v = random.nextInt(n);
+            durations[v] = random.nextInt(4);
+            incremental.updateDuration(v, durations[v]);
+
+            DAGShortestPath.CriticalPathResult expected = dagsp.findCriticalPath(graph, durations, topoOrder);
+            DAGShortestPath.CriticalPathResult actual = incremental.getCriticalPath();
+            TestAssert.assertEquals(expected.length, actual.length, "Critical path length at step " + step);
+            TestAssert.assertTrue(expected.path.equals(actual.path), "Critical path at step " + step);
+        }
+        System.out.println("✓ PASSED");
+    }
+
+    public void testCondensedCriticalPath() {
+        System.out.println("=== Test Condensed Critical Path ===");
+        // 0 -> {1, 2 -> 3 -> 2} -> 4, with 5 off to the side of the cycle 1 <-> 0
+        Map<Integer, List<Integer>> graph = new HashMap<>();
+        graph.put(0, Arrays.asList(1, 2));
+        graph.put(1, Arrays.asList(0, 4));
+        graph.put(2, Arrays.asList(3));
+        graph.put(3, Arrays.asList(2, 4));
+        graph.put(4, new ArrayList<>());
+        graph.put(5, Arrays.asList(4));
+        int[] durations = {1, 2, 5, 3, 4, 9};
+
+        TarjanSCC tarjan = new TarjanSCC(graph, metrics);
+        TopologicalSort topo = new TopologicalSort(metrics);
+        DAGShortestPath dagsp = new DAGShortestPath(metrics);
+
+        Condensation summed = tarjan.buildCondensation(durations);
+        DAGShortestPath.CondensedPathResult result =
+                dagsp.findCondensedCriticalPath(summed, topo.kahnTopologicalSort(summed.dag));
+        TestAssert.assertEquals(3 + 8 + 4, result.length, "Summed critical path length");
+        TestAssert.assertTrue(result.path.equals(Arrays.asList(0, 1, 2, 3, 4)), "Expanded path: " + result.path);
+        TestAssert.assertEquals(3, result.componentPath.size(), "Component path length");
+
+        Condensation maxed = Condensation.build(tarjan, durations, Condensation.DurationAggregate.MAX);
+        result = dagsp.findCondensedCriticalPath(maxed, topo.kahnTopologicalSort(maxed.dag));
+        TestAssert.assertEquals(13, result.length, "Max-aggregated critical path length");
+        TestAssert.assertTrue(result.path.equals(Arrays.asList(5, 4)), "Max-aggregated path: " + result.path);
+        System.out.println("✓ PASSED");
+    }
+
+    public void testCriticalPathSchedule() {
+        System.out.println("=== Test Critical Path Schedule ===");
+        // Two branches 0 -> 1 -> 3 (slack) and 0 -> 2 -> 3 (critical), then 3 -> 4
+        Map<Integer, List<Integer>> graph = new HashMap<>();
+        graph.put(0, Arrays.asList(1, 2));
+        graph.put(1, Arrays.asList(3));
+        graph.put(2, Arrays.asList(3));
+        graph.put(3, Arrays.asList(4));
+        graph.put(4, new ArrayList<>());
+        int[] durations = {2, 3, 5, 4, 2};
+
+        CSRGraph csr = CSRGraph.fromAdjacencyMap(graph);
+        int[] order = new TopologicalSort(metrics).kahnTopologicalSort(csr);
+        DAGShortestPath dagsp = new DAGShortestPath(metrics);
+        DAGShortestPath.Schedule schedule = dagsp.computeSchedule(csr, durations, order);
+
+        TestAssert.assertEquals(13, schedule.makespan, "Makespan");
+        TestAssert.assertEquals(dagsp.findCriticalPath(csr, durations, order).length, schedule.makespan,
+                "Makespan should equal the critical path length");
+        TestAssert.assertEquals(2, schedule.earliestStart[1], "ES of task 1");
+        TestAssert.assertEquals(4, schedule.latestStart[1], "LS of task 1");
+        TestAssert.assertEquals(2, schedule.slack[1], "Slack of task 1");
+        TestAssert.assertEquals(11, schedule.latestFinish[3], "LF of task 3");
+        TestAssert.assertTrue(Arrays.equals(new int[]{0, 2, 3, 4}, schedule.criticalTasks),
+                "Critical tasks: " + Arrays.toString(schedule.criticalTasks));
+        System.out.println("✓ PASSED");
+    }
+
+    public void testPathReconstruction() {
+        System.out.println("=== Test Path Reconstruction ===");
+        int n = 100_000;
+        CSRGraph.Builder builder = new CSRGraph.Builder(n, n + 1);
+        for (int v = 0; v + 1 < n; v++) {
+            builder.addEdge(v, v + 1);
+        }
+        builder.addEdge(0, n - 1); // Shortcut that shortestPaths must prefer
+        CSRGraph chain = builder.build();
+        int[] durations = new int[n];
+        Arrays.fill(durations, 1);
+        int[] order = new TopologicalSort(metrics).kahnTopologicalSort(chain);
+        DAGShortestPath dagsp = new DAGShortestPath(metrics);
+
+        DAGShortestPath.CriticalPathResult longest = dagsp.findCriticalPath(chain, durations, order);
+        TestAssert.assertEquals(n, longest.nodes.length, "Critical path should cover the whole chain");
+        TestAssert.assertEquals(n - 1, longest.nodes[n - 1], "Critical path should end at the last task");
+        TestAssert.assertEquals(n, longest.path.size(), "Boxed view should match the array");
+
+        int[] dist = new int[n];
+        int[] prev = new int[n];
+        dagsp.shortestPaths(chain, durations, order, 0, dist, prev);
+        TestAssert.assertEquals(2, dist[n - 1], "Shortcut distance");
+        TestAssert.assertTrue(dagsp.reconstructOptimalPath(dist, prev, n - 1).equals(Arrays.asList(0, n - 1)),
+                "Shortest path should take the shortcut");
+
+        int[] buffer = new int[4];
+        dagsp.shortestPaths(chain, durations, order, 1, dist, prev);
+        TestAssert.assertEquals(3, DAGShortestPath.tracePath(prev, 3, buffer), "Path length written to buffer");
+        TestAssert.assertTrue(buffer[0] == 1 && buffer[2] == 3, "Path written front to back");
+        TestAssert.assertTrue(dagsp.reconstructOptimalPath(dist, prev, 0).isEmpty(), "Unreachable target");
+        System.out.println("✓ PASSED");
+    }
+
+    public void testMultiSourceShortestPaths() {
+        System.out.println("=== Test Multi-Source Shortest Paths ===");
+        Random random = new Random(17);
+        int n = 3_000;
+        CSRGraph.Builder builder = new CSRGraph.Builder(n, 3 * n);
+        for (int i = 0; i < 3 * n; i++) {
+            int a = random.nextInt(n);
+            int b = random.nextInt(n);
+            if (a != b) {
+                builder.addEdge(Math.min(a, b), Math.max(a, b));
+            }
+        }
+        CSRGraph graph = builder.build();
+        int[] durations = new int[n];
+        for (int v = 0; v < n; v++) {
+            durations[v] = random.nextInt(10) + 1;
+        }
+        int[] order = new TopologicalSort(metrics).kahnTopologicalSort(graph);
+        int[] sources = new int[37]; // Not a multiple of the block size
+        for (int i = 0; i < sources.length; i++) {
+            sources[i] = random.nextInt(n);
+        }
+
+        DAGShortestPath dagsp = new DAGShortestPath(metrics);
+        MultiSourceShortestPaths.DistanceMatrix sequential =
+                new MultiSourceShortestPaths(graph, durations, order, metrics).distances(sources);
+        MultiSourceShortestPaths.DistanceMatrix parallel = new MultiSourceShortestPaths(graph, durations, order,
+                metrics, java.util.concurrent.ForkJoinPool.commonPool()).distances(sources);
+        for (int i = 0; i < sources.length; i++) {
+            int[] expected = dagsp.shortestPaths(graph, durations, order, sources[i]);
+            TestAssert.assertTrue(Arrays.equals(expected, sequential.row(i)), "Batched distances from " + sources[i]);
+            TestAssert.assertTrue(Arrays.equals(expected, parallel.row(i)), "Parallel distances from " + sources[i]);
+        }
+
+        // 1 -> 2 is scanned after source 0 but never reached from it; the negative duration
+        // must not turn 2's infinite distance finite
+        CSRGraph negative = new CSRGraph.Builder(3).addEdge(1, 2).build();
+        int[] negativeDurations = {4, 1, -5};
+        int[] negativeOrder = {0, 1, 2};
+        int[] fromZero = new MultiSourceShortestPaths(negative, negativeDurations, negativeOrder, metrics)
+                .distances(new int[]{0}).row(0);
+        TestAssert.assertTrue(Arrays.equals(dagsp.shortestPaths(negative, negativeDurations, negativeOrder, 0),
+                fromZero), "Negative durations should not reach unreachable vertices");
+        TestAssert.assertEquals(Integer.MAX_VALUE, fromZero[2], "Vertex 2 is unreachable from 0");
+        System.out.println("✓ PASSED");
+    }
+
+    public void testReachabilityIndex() {
+        System.out.println("=== Test Reachability Index ===");
+        Random random = new Random(23);
+        int n = 500;
+        CSRGraph.Builder builder = new CSRGraph.Builder(n);
+        for (int i = 0; i < n + n / 2; i++) {
+            int a = random.nextInt(n);
+            int b = random.nextInt(n);
+            // Mostly forward edges with a few back edges to form cycles
+            if (a < b || random.nextInt(20) == 0) {
+                builder.addEdge(a, b);
+            }
+        }
+        CSRGraph graph = builder.build();
+
+        TarjanSCC tarjan = new TarjanSCC(graph, metrics);
+        Condensation condensation = tarjan.buildCondensation(null);
+        int[] order = new TopologicalSort(metrics).kahnTopologicalSort(condensation.dag);
+        ReachabilityIndex closure = new ReachabilityIndex(graph, metrics);
+        ReachabilityIndex grail = new ReachabilityIndex(condensation, order, metrics, 0, 3, 7);
+        TestAssert.assertTrue(closure.usesClosure() && !grail.usesClosure(), "Index modes");
+
+        int[] from = new int[n * n];
+        int[] to = new int[n * n];
+        for (int u = 0; u < n; u++) {
+            for (int v = 0; v < n; v++) {
+                from[u * n + v] = u;
+                to[u * n + v] = v;
+            }
+        }
+        boolean[] bulk = grail.reaches(from, to);
+        boolean[] seen = new boolean[n];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int u = 0; u < n; u++) {
+            Arrays.fill(seen, false);
+            seen[u] = true;
+            queue.add(u);
+            while (!queue.isEmpty()) {
+                int x = queue.poll();
+                for (int e = graph.edgeStart(x); e < graph.edgeEnd(x); e++) {
+                    if (!seen[graph.target(e)]) {
+                        seen[graph.target(e)] = true;
+                        queue.add(graph.target(e));
+                    }
+                }
+            }
+            for (int v = 0; v < n; v++) {
+                TestAssert.assertTrue(closure.reaches(u, v) == seen[v], "Closure query " + u + " -> " + v);
+                TestAssert.assertTrue(bulk[u * n + v] == seen[v], "GRAIL query " + u + " -> " + v);
+            }
+        }
+        System.out.println("✓ PASSED");
+    }
+
+    public void testListScheduler() {
+        System.out.println("=== Test List Scheduler ===");
+        Random random = new Random(29);
+        int n = 5_000;
+        CSRGraph.Builder builder = new CSRGraph.Builder(n, 2 * n);
+        for (int i = 0; i < 2 * n; i++) {
+            int a = random.nextInt(n);
+            int b = random.nextInt(n);
+            if (a != b) {
+                builder.addEdge(Math.min(a, b), Math.max(a, b));
+            }
+        }
+        CSRGraph graph = builder.build();
+        int[] durations = new int[n];
+        long total = 0;
+        for (int v = 0; v < n; v++) {
+            durations[v] = random.nextInt(20) + 1;
+            total += durations[v];
+        }
+        int[] order = new TopologicalSort(metrics).kahnTopologicalSort(graph);
+        int critical = new DAGShortestPath(metrics).findCriticalPath(graph, durations, order).length;
+
+        int crews = 8;
+        ListScheduler scheduler = new ListScheduler(graph, durations, crews, metrics);
+        for (CrewSchedule schedule : Arrays.asList(scheduler.schedule(order), scheduler.scheduleHlfet(order))) {
+            TestAssert.assertTrue(schedule.makespan >= Math.max(critical, (total + crews - 1) / crews),
+                    "Makespan below the lower bound: " + schedule);
+            for (int v = 0; v < n; v++) {
+                for (int e = graph.edgeStart(v); e < graph.edgeEnd(v); e++) {
+                    TestAssert.assertTrue(schedule.start[v] + durations[v] <= schedule.start[graph.target(e)],
+                            "Task " + graph.target(e) + " started before its dependency " + v);
+                }
+            }
+            // No crew runs two tasks at once
+            Integer[] byStart = new Integer[n];
+            for (int v = 0; v < n; v++) {
+                byStart[v] = v;
+            }
+            Arrays.sort(byStart, Comparator.comparingLong(v -> schedule.start[v]));
+            long[] crewFree = new long[crews];
+            for (int v : byStart) {
+                TestAssert.assertTrue(crewFree[schedule.crew[v]] <= schedule.start[v], "Crew double-booked at task " + v);
+                crewFree[schedule.crew[v]] = schedule.start[v] + durations[v];
+            }
+            TestAssert.assertEquals((int) total, (int) schedule.busyTime, "Busy time should cover every task");
+        }
+        System.out.println("✓ PASSED");
+    }
+
+    public void testParallelTaskRunner() throws InterruptedException {
+        System.out.println("=== Test Parallel Task Runner ===");
+        Random random = new Random(31);
+        int n = 20_000;
+        CSRGraph.Builder builder = new CSRGraph.Builder(n, 3 * n);
+        for (int i = 0; i < 3 * n; i++) {
+            int a = random.nextInt(n);
+            int b = random.nextInt(n);
+            if (a != b) {
+                builder.addEdge(Math.min(a, b), Math.max(a, b));
+            }
+        }
+        CSRGraph graph = builder.build();
+
+        java.util.concurrent.atomic.AtomicInteger clock = new java.util.concurrent.atomic.AtomicInteger();
+        java.util.concurrent.atomic.AtomicIntegerArray started = new java.util.concurrent.atomic.AtomicIntegerArray(n);
+        java.util.concurrent.atomic.AtomicIntegerArray finished = new java.util.concurrent.atomic.AtomicIntegerArray(n);
+        Runnable[] actions = new Runnable[n];
+        for (int v = 0; v < n; v++) {
+            int task = v;
+            actions[v] = () -> {
+                started.set(task, clock.incrementAndGet());
+                finished.set(task, clock.incrementAndGet());
+            };
+        }
+
+        java.util.concurrent.ForkJoinPool pool = new java.util.concurrent.ForkJoinPool(4);
+        try {
+            Metrics runMetrics = new Metrics();
+            ParallelTaskRunner runner = new ParallelTaskRunner(runMetrics, pool);
+            ParallelTaskRunner.RunReport report = runner.run(graph, actions);
+            TestAssert.assertEquals(n, report.wallTime.length, "Report should cover every task");
+            TestAssert.assertEquals(n, (int) runMetrics.getTasksRun(), "Metrics should count every task");
+            for (int v = 0; v < n; v++) {
+                TestAssert.assertTrue(started.get(v) > 0, "Task " + v + " never ran");
+                for (int e = graph.edgeStart(v); e < graph.edgeEnd(v); e++) {
+                    TestAssert.assertTrue(finished.get(v) < started.get(graph.target(e)),
+                            "Task " + graph.target(e) + " ran before its dependency " + v);
+                }
+            }
+
+            actions[n / 2] = () -> { throw new IllegalStateException("boom"); };
+            boolean failed = false;
+            try {
+                runner.run(graph, actions);
+            } catch (IllegalStateException e) {
+                failed = e.getCause() != null && "boom".equals(e.getCause().getMessage());
+            }
+            TestAssert.assertTrue(failed, "A failing action should be reported");
+
+            // One busy thread and a one-slot queue: the fan-out of task 0 overflows it
+            CSRGraph fan = new CSRGraph.Builder(10)
+                    .addEdge(0, 1).addEdge(0, 2).addEdge(0, 3).addEdge(0, 4).addEdge(0, 5).build();
+            java.util.concurrent.ThreadPoolExecutor bounded = new java.util.concurrent.ThreadPoolExecutor(1, 1,
+                    0, java.util.concurrent.TimeUnit.SECONDS, new java.util.concurrent.ArrayBlockingQueue<>(1));
+            try {
+                TestAssert.assertTrue(rejectedRun(new ParallelTaskRunner(new Metrics(), bounded), fan),
+                        "A rejected successor should fail the run instead of hanging");
+            } finally {
+                bounded.shutdown();
+            }
+            TestAssert.assertTrue(rejectedRun(new ParallelTaskRunner(new Metrics(), bounded), fan),
+                    "A shut-down executor should fail the run instead of hanging");
+        } finally {
+            pool.shutdown();
+        }
+        System.out.println("✓ PASSED");
+    }
+
+    private static boolean rejectedRun(ParallelTaskRunner runner, CSRGraph graph) throws InterruptedException {
+        try {
+            runner.run(graph, new Runnable[graph.vertexCount()]);
+            return false;
+        } catch (IllegalStateException e) {
+            return e.getCause() instanceof java.util.concurrent.RejectedExecutionException;
+        }
+    }
+
+    public void testGraphGenerators() throws java.io.IOException {
+        System.out.println("=== Test Graph Generators ===");
+        TaskGraph er = GraphGenerators.erdosRenyiWithEdges("er", 20_000, 100_000, true, 1);
+        TestAssert.assertTrue(Math.abs(er.graph.edgeCount() - 100_000) < 3_000, "G(n,p) edge count " + er.graph.edgeCount());
+        TestAssert.assertEquals(20_000, new TopologicalSort(metrics).kahnTopologicalSort(er.graph).length,
+                "Acyclic G(n,p) should be a DAG");
+        TaskGraph again = GraphGenerators.erdosRenyiWithEdges("er", 20_000, 100_000, true, 1);
+        TestAssert.assertTrue(Arrays.equals(er.durations, again.durations)
+                && er.graph.edgeCount() == again.graph.edgeCount()
+                && er.graph.target(er.graph.edgeCount() - 1) == again.graph.target(again.graph.edgeCount() - 1),
+                "Same seed should give the same graph");
+
+        TaskGraph layered = GraphGenerators.layeredDag("layered", 50, 200, 3, 2);
+        TestAssert.assertEquals(50, new ParallelTopologicalSort(metrics).sort(layered.graph).levelCount(),
+                "Layered DAG depth");
+        TestAssert.assertEquals(49 * 200 * 3, layered.graph.edgeCount(), "Layered DAG edge count");
+
+        TaskGraph ba = GraphGenerators.preferentialAttachment("ba", 10_000, 3, 3);
+        TestAssert.assertEquals(10_000, new TopologicalSort(metrics).kahnTopologicalSort(ba.graph).length,
+                "Preferential attachment should be a DAG");
+
+        int[] sizes = {5, 1, 12, 3, 1, 40};
+        TaskGraph planted = GraphGenerators.plantedSccs("scc", sizes, 4, 200, 4);
+        List<Integer> found = new ArrayList<>(new TarjanSCC(planted.graph, metrics).getSCCSizes());
+        Collections.sort(found);
+        TestAssert.assertTrue(found.equals(Arrays.asList(1, 1, 3, 5, 12, 40)), "Planted SCC sizes: " + found);
+
+        java.io.StringWriter json = new java.io.StringWriter();
+        JsonGraphWriter.write(json, planted, Collections.singletonMap("model", "\"scc\""));
+        TaskGraph loaded = JsonGraphLoader.load(new StringReader(json.toString()), "unused");
+        TestAssert.assertTrue("scc".equals(loaded.name) && Arrays.equals(planted.durations, loaded.durations),
+                "Written dataset should load back");
+        TestAssert.assertEquals(planted.graph.edgeCount(), loaded.graph.edgeCount(), "Written edges");
+        System.out.println("✓ PASSED");
+    }
+
+    public void testMetrics() throws InterruptedException {
+        System.out.println("=== Test Metrics ===");
+        Metrics shared = new Metrics();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    shared.incrementEdgeRelaxations();
+                }
+                shared.addDfsVisits(3_000_000_000L);
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        TestAssert.assertTrue(shared.getEdgeRelaxations() == 400_000, "Concurrent increments lost: " + shared.getEdgeRelaxations());
+        TestAssert.assertTrue(shared.getDfsVisits() == 12_000_000_000L, "Counters should not overflow");
+
+        shared.startTimer();
+        shared.stopTimer();
+        shared.reset();
+        TestAssert.assertTrue(shared.getElapsedTime() == 0 && shared.getEdgeRelaxations() == 0,
+                "reset() should clear the timer and counters");
+        shared.startTimer();
+        shared.stopTimer();
+        long elapsed = shared.getElapsedTime();
+        Thread other = new Thread(shared::startTimer);
+        other.start();
+        other.join();
+        TestAssert.assertTrue(shared.getElapsedTime() == elapsed, "Stopwatch should be per thread: " + shared.getElapsedTime());
+        shared.reset();
+
+        shared.time("a", () -> {
+            for (int i = 0; i < 3; i++) {
+                try (Metrics.Scope inner = shared.scope("b")) {
+                    TestAssert.assertTrue("a/b".equals(inner.getPath()), "Nested scope path: " + inner.getPath());
+                }
+            }
+        });
+        TestAssert.assertTrue(shared.getHistograms().keySet().equals(new HashSet<>(Arrays.asList("a", "a/b"))),
+                "Scopes should record by path: " + shared.getHistograms().keySet());
+        TestAssert.assertTrue(shared.histogram("a/b").count() == 3, "Each close should add a sample");
+        TestAssert.assertEquals(7, shared.time("c", () -> 7), "time() returns the body's result");
+        TestAssert.assertTrue(shared.histogram("c").count() == 1, "time() records one sample");
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        long p50 = histogram.percentile(0.5);
+        long p99 = histogram.percentile(0.99);
+        TestAssert.assertTrue(p50 > 430_000 && p50 <= 500_000, "p50 out of bucket bounds: " + p50);
+        TestAssert.assertTrue(p99 > 860_000 && p99 <= 990_000, "p99 out of bucket bounds: " + p99);
+        TestAssert.assertTrue(histogram.min() == 1000 && histogram.max() == 1_000_000, "Histogram extremes");
+
+        Metrics disabled = Metrics.disabled();
+        disabled.incrementDfsVisits();
+        disabled.addEdgeRelaxations(10);
+        disabled.time("ignored", () -> disabled.histogram("ignored").record(5));
+        new TarjanSCC(CSRGraph.of(new int[]{0, 1, 2}, new int[]{1, 0}), disabled).findComponents();
+        TestAssert.assertTrue(disabled.getDfsVisits() == 0 && disabled.getEdgeRelaxations() == 0
+                && disabled.getHistograms().isEmpty(), "Disabled metrics should record nothing");
+        System.out.println("✓ PASSED");
+    }
+
+    public void testIdInterning() throws java.io.IOException {
+        System.out.println("=== Test Id Interning ===");
+        LongIdMap ids = new LongIdMap(4);
+        long base = 9_000_000_000_000L;
+        long[][] edges = {{base, base + 70_001}, {base + 70_001, base + 5}, {base + 5, base}, {base + 5, -42}};
+        CSRGraph.Builder builder = new CSRGraph.Builder();
+        for (long[] edge : edges) {
+            int u = ids.intern(edge[0]);
+            int v = ids.intern(edge[1]);
+            builder.ensureVertexCount(ids.size());
+            builder.addEdge(u, v);
+        }
+        CSRGraph graph = builder.build();
+        TestAssert.assertEquals(4, graph.vertexCount(), "Interned vertex count");
+        TestAssert.assertEquals(2, ids.get(base + 5), "Ids are dense in first-seen order");
+        TestAssert.assertEquals(-1, ids.get(base + 6), "Unknown id");
+
+        TarjanSCC tarjan = new TarjanSCC(graph, metrics);
+        int count = tarjan.findComponents();
+        long[][] components = ids.toExternal(tarjan.getComponentMembers(), tarjan.getComponentOffsets(), count);
+        TestAssert.assertEquals(2, components.length, "Sparse-id SCC count");
+        TestAssert.assertTrue(components[0].length == 1 && components[0][0] == -42, "Sink component maps back to its id");
+        long[] cycle = components[1].clone();
+        Arrays.sort(cycle);
+        TestAssert.assertTrue(Arrays.equals(cycle, new long[]{base, base + 5, base + 70_001}), "Cycle maps back to ids");
+
+        String sparse = "{ \"graph\": { \"9000000000000\": [9000000070001], \"9000000070001\": [\"9000000000005\"], "
+                + "\"9000000000005\": [9000000000000, -42] }, \"durations\": { \"9000000000000\": 2, "
+                + "\"9000000070001\": 3, \"9000000000005\": 4, \"-42\": 1 } }";
+        LongIdMap keys = new LongIdMap();
+        TaskGraph sparseGraph = JsonGraphLoader.load(new StringReader(sparse), "sparse", keys);
+        TestAssert.assertEquals(4, sparseGraph.graph.vertexCount(), "Sparse long ids interned at load");
+        TestAssert.assertEquals(4, sparseGraph.durations[keys.get(base + 5)], "Durations follow the interned ids");
+        long[][] sparseComponents = new TarjanSCC(sparseGraph.graph, metrics).toExternal(keys);
+        TestAssert.assertTrue(sparseComponents.length == 2 && sparseComponents[0].length == 1
+                && sparseComponents[0][0] == -42, "Loaded SCCs map back to external ids");
+        Condensation condensed = new TarjanSCC(sparseGraph.graph, metrics).buildCondensation(sparseGraph.durations);
+        DAGShortestPath.CriticalPathResult sparsePath = new DAGShortestPath(metrics).findCondensedCriticalPath(
+                condensed, new TopologicalSort(metrics).kahnTopologicalSort(condensed.dag));
+        TestAssert.assertTrue(sparsePath.toExternal(keys)[sparsePath.nodes.length - 1] == -42,
+                "Critical path ends at the external sink id: " + Arrays.toString(sparsePath.toExternal(keys)));
+
+        LongIdMap many = new LongIdMap();
+        for (long i = 0; i < 200_000; i++) {
+            TestAssert.assertEquals((int) i, many.intern(i << 20), "Interning after growth");
+        }
+        for (long i = 0; i < 200_000; i += 997) {
+            TestAssert.assertEquals((int) i, many.get(i << 20), "Lookup after growth");
+        }
+
+        String json = "{ \"name\": \"codes\", \"graph\": { \"PIPE-A\": [\"PIPE-B\", 17], \"PIPE-B\": [\"ROAD-9\"], "
+                + "\"17\": [\"ROAD-9\"], \"ROAD-9\": [] }, \"durations\": { \"PIPE-A\": 2, \"PIPE-B\": 5, \"17\": 1, \"ROAD-9\": 3 } }";
+        StringIdMap codes = new StringIdMap();
+        TaskGraph taskGraph = JsonGraphLoader.load(new StringReader(json), "unused", codes);
+        TestAssert.assertEquals(4, taskGraph.graph.vertexCount(), "String ids interned");
+        int[] order = new TopologicalSort(metrics).kahnTopologicalSort(taskGraph.graph);
+        DAGShortestPath.CriticalPathResult path = new DAGShortestPath(metrics)
+                .findCriticalPath(taskGraph.graph, taskGraph.durations, order);
+        TestAssert.assertEquals(10, path.length, "Critical path over string ids");
+        TestAssert.assertTrue(Arrays.equals(path.toExternal(codes), new String[]{"PIPE-A", "PIPE-B", "ROAD-9"}),
+                "Critical path maps back to codes: " + Arrays.toString(path.toExternal(codes)));
+        System.out.println("✓ PASSED");
+    }
+
+    public void testAnalysisCache() throws java.io.IOException {
+        System.out.println("=== Test Analysis Cache ===");
+        TaskGraph cyclic = GraphGenerators.plantedSccs("scc", new int[]{4, 1, 6, 2}, 3, 10, 7);
+        CSRGraph.Builder copy = new CSRGraph.Builder(cyclic.graph.vertexCount());
+        for (int v = 0; v < cyclic.graph.vertexCount(); v++) {
+            for (int e = cyclic.graph.edgeStart(v); e < cyclic.graph.edgeEnd(v); e++) {
+                copy.addEdge(v, cyclic.graph.target(e));
+            }
+        }
+        CSRGraph sameStructure = copy.build();
+        TestAssert.assertTrue(GraphFingerprint.of(cyclic.graph).equals(GraphFingerprint.of(sameStructure)),
+                "Equal structure should give equal fingerprints");
+        TestAssert.assertTrue(!GraphFingerprint.of(cyclic.graph).equals(GraphFingerprint.of(CSRGraph.transpose(cyclic.graph))),
+                "Reversed edges should change the fingerprint");
+
+        AnalysisCache cache = new AnalysisCache(1 << 20, metrics);
+        StructuralAnalysis first = cache.structure(cyclic.graph);
+        TestAssert.assertEquals(4, first.componentCount(), "Cached SCC count");
+        TestAssert.assertTrue(!first.isAcyclic(), "Planted SCCs are cyclic");
+        TestAssert.assertTrue(cache.structure(sameStructure) == first, "Same structure should hit the cache");
+
+        DAGShortestPath.CriticalPathResult path = cache.criticalPath(cyclic.graph, cyclic.durations);
+        Condensation condensation = new TarjanSCC(cyclic.graph, metrics).buildCondensation(cyclic.durations);
+        int[] order = new TopologicalSort(metrics).kahnTopologicalSort(condensation.dag);
+        TestAssert.assertEquals(new DAGShortestPath(metrics).findCondensedCriticalPath(condensation, order).length,
+                path.length, "Cached critical path length");
+        TestAssert.assertTrue(cache.criticalPath(cyclic.graph, cyclic.durations.clone()) == path,
+                "Equal durations should hit the path cache");
+
+        int[] longer = cyclic.durations.clone();
+        Arrays.fill(longer, 100);
+        long missesBefore = cache.getMisses();
+        DAGShortestPath.CriticalPathResult longerPath = cache.criticalPath(cyclic.graph, longer);
+        TestAssert.assertTrue(cache.getMisses() == missesBefore + 1, "Only the critical path should be recomputed");
+        TestAssert.assertTrue(longerPath.length > path.length, "New durations give a new path");
+
+        TaskGraph dag = GraphGenerators.layeredDag("layered", 5, 4, 2, 1);
+        TestAssert.assertEquals(new DAGShortestPath(metrics).findCriticalPath(dag.graph, dag.durations,
+                        new TopologicalSort(metrics).kahnTopologicalSort(dag.graph)).length,
+                cache.criticalPath(dag.graph, dag.durations).length, "Acyclic graphs use the plain critical path");
+
+        java.nio.file.Path directory = java.nio.file.Files.createTempDirectory("analysis-cache");
+        try {
+            new AnalysisCache(1 << 20, directory, metrics).structure(cyclic.graph);
+            AnalysisCache restarted = new AnalysisCache(1 << 20, directory, metrics);
+            StructuralAnalysis restored = restarted.structure(cyclic.graph);
+            TestAssert.assertTrue(restarted.getDiskHits() == 1 && restarted.getMisses() == 0, "Should load from disk");
+            TestAssert.assertTrue(Arrays.equals(first.condensation.componentIds, restored.condensation.componentIds)
+                    && Arrays.equals(first.componentOrder, restored.componentOrder), "Restored partition");
+
+            // Reverse the stored vertex order of the DAG: same length, but no longer topological
+            StructuralAnalysis dagStructure = new AnalysisCache(1 << 20, directory, metrics).structure(dag.graph);
+            java.nio.file.Path file = directory.resolve(dagStructure.fingerprint.toHex() + ".scc");
+            java.nio.ByteBuffer bytes = java.nio.ByteBuffer.wrap(java.nio.file.Files.readAllBytes(file));
+            int n = dag.graph.vertexCount();
+            int vertexOrderAt = 4 * (4 + n + 1 + dagStructure.componentCount() + 1);
+            for (int i = 0; i < n; i++) {
+                bytes.putInt(vertexOrderAt + 4 * i, dagStructure.vertexOrder[n - 1 - i]);
+            }
+            java.nio.file.Files.write(file, bytes.array());
+            AnalysisCache reread = new AnalysisCache(1 << 20, directory, metrics);
+            TestAssert.assertTrue(Arrays.equals(dagStructure.vertexOrder, reread.structure(dag.graph).vertexOrder)
+                    && reread.getDiskHits() == 0, "A corrupt vertex order should be ignored");
+
+            AnalysisCache unwritable = new AnalysisCache(1 << 20, file, metrics);
+            TestAssert.assertEquals(first.componentCount(), unwritable.structure(cyclic.graph).componentCount(),
+                    "A failing disk tier should not fail the analysis");
+        } finally {
+            try (java.util.stream.Stream<java.nio.file.Path> files = java.nio.file.Files.list(directory)) {
+                for (java.nio.file.Path file : (Iterable<java.nio.file.Path>) files::iterator) {
+                    java.nio.file.Files.delete(file);
+                }
+            }
+            java.nio.file.Files.delete(directory);
+        }
+
+        AnalysisCache tiny = new AnalysisCache(first.estimatedBytes() + 1, metrics);
+        tiny.structure(cyclic.graph);
+        tiny.structure(dag.graph);
+        TestAssert.assertTrue(tiny.size() == 1 && tiny.getEvictions() == 1, "Size bound should evict: " + tiny);
+        System.out.println("✓ PASSED");
+    }
+
+    public void testBatchPipeline() throws java.io.IOException, InterruptedException {
+        System.out.println("=== Test Batch Pipeline ===");
+        java.nio.file.Path directory = java.nio.file.Files.createTempDirectory("batch");
+        java.nio.file.Path output = directory.resolve("results");
+        try {
+            TaskGraph dag = GraphGenerators.layeredDag("layered", 20, 10, 3, 5);
+            TaskGraph cyclic = GraphGenerators.plantedSccs("planted\u0001\"", new int[]{3, 4, 1, 5}, 2, 20, 6);
+            TaskGraph binary = GraphGenerators.erdosRenyiWithEdges("random", 500, 2000, true, 7);
+            JsonGraphWriter.write(directory.resolve("layered.json"), dag);
+            JsonGraphWriter.write(directory.resolve("planted.json"), cyclic);
+            BinaryGraphFormat.write(directory.resolve("random.bin"), binary);
+            BinaryGraphFormat.write(directory.resolve("layered.bin"), dag);
+            java.nio.file.Files.write(directory.resolve("broken.json"), "{ \"graph\": [".getBytes());
+            java.nio.file.Path elsewhere = java.nio.file.Files.createDirectory(directory.resolve("copy"));
+            JsonGraphWriter.write(elsewhere.resolve("planted.json"), cyclic);
+            List<java.nio.file.Path> inputs = Arrays.asList(directory.resolve("layered.json"),
+                    directory.resolve("broken.json"), directory.resolve("planted.json"), directory.resolve("random.bin"),
+                    directory.resolve("layered.bin"), elsewhere.resolve("planted.json"));
+
+            // One graph in flight at a time forces every loader to wait for the workers
+            BatchPipeline.BatchReport report = new BatchPipeline(2, 2, 1, output).run(inputs);
+            TestAssert.assertEquals(6, report.results.size(), "One result per dataset");
+            TestAssert.assertEquals(4, report.succeeded(), "The broken dataset and the clashing name should fail");
+            TestAssert.assertTrue(!report.results.get(5).succeeded(), "A second planted.json would overwrite the first");
+            TestAssert.assertTrue(!report.results.get(1).succeeded(), "Results keep input order");
+
+            BatchPipeline.GraphResult layered = report.results.get(0);
+            int[] order = new TopologicalSort(metrics).kahnTopologicalSort(dag.graph);
+            TestAssert.assertTrue(layered.acyclic, "Layered DAG is acyclic");
+            TestAssert.assertEquals(new DAGShortestPath(metrics).findCriticalPath(dag.graph, dag.durations, order).length,
+                    layered.criticalPathLength, "Batch critical path");
+            TestAssert.assertEquals(4, report.results.get(2).components, "Batch SCC count");
+            TestAssert.assertTrue(report.results.get(2).metrics.getHistograms().containsKey("critical-path"),
+                    "Per-graph metrics should time every phase");
+            TestAssert.assertTrue(report.totalEdges() == 2 * dag.graph.edgeCount() + cyclic.graph.edgeCount()
+                    + binary.graph.edgeCount(), "Edge total");
+            for (String result : new String[]{"layered.json", "layered.bin", "planted.json", "random.bin"}) {
+                TestAssert.assertTrue(java.nio.file.Files.exists(output.resolve(result + ".result.json")),
+                        "Result of " + result + " written");
+            }
+            String planted = new String(java.nio.file.Files.readAllBytes(output.resolve("planted.json.result.json")),
+                    java.nio.charset.StandardCharsets.UTF_8);
+            TestAssert.assertTrue(planted.contains("\"name\": \"planted\\u0001\\\"\","),
+                    "Result names should be fully escaped: " + planted);
+
+            // Results in an input directory are not read back as datasets
+            BatchPipeline.main(new String[]{output.toString(), output.toString()});
+            try (java.util.stream.Stream<java.nio.file.Path> files = java.nio.file.Files.list(output)) {
+                TestAssert.assertEquals(4, (int) files.count(), "A second run over the output adds nothing");
+            }
+        } finally {
+            try (java.util.stream.Stream<java.nio.file.Path> files = java.nio.file.Files.walk(directory)) {
+                List<java.nio.file.Path> paths = new ArrayList<>();
+                files.forEach(paths::add);
+                Collections.reverse(paths);
+                for (java.nio.file.Path path : paths) {
+                    java.nio.file.Files.delete(path);
+                }
+            }
+        }
+        System.out.println("✓ PASSED");
+    }
+
+    public void testAnalysisServer() throws Exception {
+        System.out.println("=== Test Analysis Server ===");
+        AnalysisServer server = new AnalysisServer(0, 4, 2, 1 << 20);
+        server.start();
+        try {
+            String base = "http://127.0.0.1:" + server.getPort();
+            TaskGraph dag = GraphGenerators.layeredDag("layered", 10, 5, 2, 3);
+            java.io.StringWriter json = new java.io.StringWriter();
+            JsonGraphWriter.write(json, dag, Collections.emptyMap());
+            String uploaded = httpRequest("PUT", base + "/graphs/city", json.toString().getBytes("UTF-8"));
+            TestAssert.assertTrue(uploaded.contains("\"vertices\": 50"), "Upload summary: " + uploaded);
+
+            int expected = new DAGShortestPath(metrics).findCriticalPath(dag.graph, dag.durations,
+                    new TopologicalSort(metrics).kahnTopologicalSort(dag.graph)).length;
+            List<Thread> clients = new ArrayList<>();
+            List<String> answers = Collections.synchronizedList(new ArrayList<>());
+            for (int t = 0; t < 8; t++) {
+                Thread client = new Thread(() -> {
+                    try {
+                        answers.add(httpRequest("GET", base + "/graphs/city/critical-path", null));
+                    } catch (java.io.IOException e) {
+                        answers.add(e.toString());
+                    }
+                });
+                clients.add(client);
+                client.start();
+            }
+            for (Thread client : clients) {
+                client.join();
+            }
+            for (String answer : answers) {
+                TestAssert.assertTrue(answer.startsWith("{\"criticalPathLength\": " + expected + ","),
+                        "Concurrent critical path: " + answer);
+            }
+
+            TaskGraph cyclic = GraphGenerators.plantedSccs("planted", new int[]{3, 2}, 1, 2, 4);
+            java.nio.file.Path file = java.nio.file.Files.createTempFile("graph", ".bin");
+            try {
+                BinaryGraphFormat.write(file, cyclic);
+                String analysis = httpRequest("POST", base + "/analyze", java.nio.file.Files.readAllBytes(file));
+                TestAssert.assertTrue(analysis.contains("\"acyclic\": false") && analysis.contains("\"criticalComponents\""),
+                        "Binary analysis: " + analysis);
+            } finally {
+                java.nio.file.Files.delete(file);
+            }
+
+            server.put(new TaskGraph("second", dag.graph, dag.durations));
+            server.put(new TaskGraph("third", dag.graph, dag.durations));
+            String listing = httpRequest("GET", base + "/graphs", null);
+            TestAssert.assertTrue(!listing.contains("city") && listing.contains("third"),
+                    "Least recently used graph should be dropped: " + listing);
+            TestAssert.assertTrue(httpRequest("GET", base + "/graphs/city/scc", null).contains("\"error\""),
+                    "Dropped graph should be gone");
+            TestAssert.assertTrue(server.getCache().getHits() > 0, "Repeated queries should hit the cache");
+
+            String farDuration = httpRequest("POST", base + "/analyze",
+                    "{\"durations\": {\"2000000000\": 1}}".getBytes("UTF-8"));
+            TestAssert.assertTrue(farDuration.contains("Invalid graph"), "Far duration key: " + farDuration);
+            String manyNodes = httpRequest("POST", base + "/analyze", "{\"nodes\": 2000000000}".getBytes("UTF-8"));
+            TestAssert.assertTrue(manyNodes.contains("Invalid graph"), "Huge node count: " + manyNodes);
+            String negative = httpRequest("POST", base + "/analyze", "{\"nodes\": 2, \"graph\": {\"0\": [-1]}}".getBytes("UTF-8"));
+            TestAssert.assertTrue(negative.contains("Invalid graph"), "Negative task id: " + negative);
+            String prefix = httpRequest("GET", base + "/graphsfoo", null);
+            TestAssert.assertTrue(prefix.contains("No such resource"), "Only /graphs itself lists graphs: " + prefix);
+        } finally {
+            server.stop(0);
+        }
+
+        AnalysisServer small = new AnalysisServer(0, 1, 1, 1 << 20, 64);
+        small.start();
+        try {
+            byte[] large = new byte[1024];
+            Arrays.fill(large, (byte) ' ');
+            String tooLarge = httpRequest("POST", "http://127.0.0.1:" + small.getPort() + "/analyze", large);
+            TestAssert.assertTrue(tooLarge.contains("exceeds 64 bytes"), "Oversized body: " + tooLarge);
+        } finally {
+            small.stop(0);
+        }
+        System.out.println("✓ PASSED");
+    }
+
+    /** Body of the response, or of the error response for 4xx/5xx statuses. */
+    private static String httpRequest(String method, String url, byte[] body) throws java.io.IOException {
+        java.net.HttpURLConnection connection = (java.net.HttpURLConnection) new java.net.URL(url).openConnection();
+        connection.setRequestMethod(method);
+        if (body != null) {
+            connection.setDoOutput(true);
+            try (java.io.OutputStream out = connection.getOutputStream()) {
+                out.write(body);
+            }
+        }
+        java.io.InputStream in = connection.getResponseCode() < 400 ? connection.getInputStream() : connection.getErrorStream();
+        try (in) {
+            return new String(in.readAllBytes(), "UTF-8");
+        }
+    }
+
+    public void testOffHeapGraph() throws java.io.IOException {
+        System.out.println("=== Test Off-Heap Graph ===");
+        TaskGraph cyclic = GraphGenerators.plantedSccs("planted", new int[]{7, 1, 30, 4, 1, 12}, 5, 60, 8);
+        java.nio.file.Path file = java.nio.file.Files.createTempFile("offheap", ".bin");
+        try {
+            BinaryGraphFormat.write(file, cyclic);
+            // Tiny chunks so that offsets, targets and durations all span many mapped chunks
+            OffHeapGraph.MappedDataset mapped = OffHeapGraph.map(file, 3);
+            OffHeapGraph graph = mapped.graph;
+            TestAssert.assertTrue(graph.edgeCount() == cyclic.graph.edgeCount(), "Mapped edge count");
+            TestAssert.assertTrue(Arrays.equals(cyclic.durations, mapped.durations), "Mapped durations");
+            for (int v = 0; v < cyclic.graph.vertexCount(); v++) {
+                TestAssert.assertTrue(graph.edgeStart(v) == cyclic.graph.edgeStart(v)
+                        && graph.outDegree(v) == cyclic.graph.outDegree(v), "Mapped offsets of " + v);
+                for (int e = cyclic.graph.edgeStart(v); e < cyclic.graph.edgeEnd(v); e++) {
+                    TestAssert.assertEquals(cyclic.graph.target(e), graph.target(e), "Mapped target " + e);
+                }
+            }
+
+            TarjanSCC heap = new TarjanSCC(cyclic.graph, metrics);
+            LongTarjanSCC offHeap = new LongTarjanSCC(graph, metrics);
+            TestAssert.assertEquals(heap.findComponents(), offHeap.findComponents(), "Off-heap SCC count");
+            TestAssert.assertTrue(Arrays.equals(heap.getComponentIds(), offHeap.getComponentIds()), "Off-heap SCC ids");
+
+            Condensation condensation = heap.buildCondensation(cyclic.durations);
+            OffHeapGraph dag = offHeap.buildCondensationDag();
+            TestAssert.assertTrue(dag.edgeCount() == condensation.dag.edgeCount(), "Off-heap condensation edges");
+            TopologicalSort topo = new TopologicalSort(metrics);
+            int[] heapOrder = topo.kahnTopologicalSort(condensation.dag);
+            int[] offHeapOrder = topo.kahnTopologicalSort(dag);
+            TestAssert.assertTrue(Arrays.equals(heapOrder, offHeapOrder), "Off-heap topological order");
+            TestAssert.assertTrue(topo.kahnTopologicalSort(graph).length < graph.vertexCount(), "Cycle detected off-heap");
+
+            DAGShortestPath shortestPath = new DAGShortestPath(metrics);
+            DAGShortestPath.CriticalPathResult expected =
+                    shortestPath.findCriticalPath(condensation.dag, condensation.componentDurations, heapOrder);
+            DAGShortestPath.CriticalPathResult actual =
+                    shortestPath.findCriticalPath(dag, offHeap.componentDurations(cyclic.durations), offHeapOrder);
+            TestAssert.assertEquals(expected.length, actual.length, "Off-heap critical path length");
+            TestAssert.assertTrue(Arrays.equals(expected.nodes, actual.nodes), "Off-heap critical path");
+        } finally {
+            java.nio.file.Files.delete(file);
+        }
+
+        OffHeapGraph.Builder builder = new OffHeapGraph.Builder(5, 1, 2);
+        builder.addEdge(0, 1).addEdge(0, 2).addEdge(0, 3).addEdge(0, 4).addEdge(0, 1).addEdge(3, 4).addEdge(3, 2);
+        OffHeapGraph built = builder.build();
+        TestAssert.assertTrue(built.edgeCount() == 7 && built.outDegree(0) == 5 && built.outDegree(1) == 0
+                && built.edgeStart(3) == 5 && built.edgeEnd(4) == 7, "Built offsets: " + built);
+        TestAssert.assertEquals(2, built.target(6), "Built target across chunks");
+        boolean rejected = false;
+        try {
+            builder.addEdge(1, 0);
+        } catch (IllegalArgumentException e) {
+            rejected = true;
+        }
+        TestAssert.assertTrue(rejected, "Out-of-order sources should be rejected");
+        System.out.println("✓ PASSED");
+    }
+
     public void runAllTests() {
         System.out.println("=== Running JUnit-style Tests ===\n");
         setUp();
@@ -114,9 +1299,36 @@ public class GraphAlgorithmsTest {
             testSCCSimpleCycle();
             testTopologicalSortDAG();
             testCriticalPath();
+            testCSRGraphAlgorithms();
+            testSCCDeepChain();
+            testJsonGraphLoader();
+            testBinaryGraphFormat();
+            testParallelSCCMatchesTarjan();
+            testParallelSCCChainOfSmallComponents();
+            testCondensation();
+            testParallelTopologicalLevels();
+            testParallelCriticalPath();
+            testDynamicDependencyGraph();
+            testIncrementalCriticalPath();
+            testCondensedCriticalPath();
+            testCriticalPathSchedule();
+            testPathReconstruction();
+            testMultiSourceShortestPaths();
+            testReachabilityIndex();
+            testListScheduler();
+            testParallelTaskRunner();
+            testGraphGenerators();
+            testMetrics();
+            testIdInterning();
+            testAnalysisCache();
+            testBatchPipeline();
+            testAnalysisServer();
+            testOffHeapGraph();
             System.out.println("\n=== ALL JUNIT TESTS PASSED ===");
         } catch (AssertionError e) {
             System.out.println("\n=== TEST FAILED: " + e.getMessage() + " ===");
+        } catch (Exception e) {
+            System.out.println("\n=== TEST ERROR: " + e + " ===");
         }
     }
 